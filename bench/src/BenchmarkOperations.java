@@ -0,0 +1,173 @@
+import java.io.File;
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.stanford.nlp.pipeline.CoreDocument;
+import edu.stanford.nlp.pipeline.CoreSentence;
+
+import fever.bench.FeverOperations;
+
+/*
+ * Points FEVER_OSU at the checked-in sample, the pages in bench/wiki-sample and the claims in
+ * bench/claims-sample.jsonl, and runs the timed operations against it. Index, store and cache
+ * files go to a scratch directory so a run never picks up or overwrites the full-size ones.
+ * Paths are relative to the repository root.
+ */
+public class BenchmarkOperations implements FeverOperations {
+
+	static final String WIKI_SAMPLE_DIR = "bench/wiki-sample";
+	static final String CLAIMS_SAMPLE_FILE = "bench/claims-sample.jsonl";
+	static final int MAX_PHRASE_TOKENS = 3;
+
+	private List<ClaimSource.Claim> claims;
+	// every run of up to MAX_PHRASE_TOKENS words in the claims, the kind of phrase findDocuments checks
+	private String[] phrases;
+	private ArrayList<String> topics;
+	private String scratchIndexFileName;
+	private PipelineRegistry pipelines;
+	// {context, annotated sentence, lowercased sentence, matches, nouns and named entities, wiki title}
+	private List<Object[]> candidates;
+	private int nextClaim = 0;
+
+	public void loadSample() throws IOException {
+		File scratch = new File(System.getProperty("java.io.tmpdir"), "fever-bench");
+		scratch.mkdirs();
+		FEVER_OSU.wikiDirName = WIKI_SAMPLE_DIR;
+		FEVER_OSU.wikiIndexFileName = new File(scratch, "wikiIndex.bin").getPath();
+		FEVER_OSU.annotationStoreFileName = new File(scratch, "wikiAnnotations.bin").getPath();
+		FEVER_OSU.sentenceIndexFileName = new File(scratch, "wikiSentences.bin").getPath();
+		FEVER_OSU.posTagCacheFileName = new File(scratch, "posTagCache.tsv").getPath();
+		FEVER_OSU.useClaimResultCache = false;
+		if(!FEVER_OSU.loadResources()) {
+			throw new IOException("Could not load the wiki sample in " + WIKI_SAMPLE_DIR);
+		}
+		scratchIndexFileName = new File(scratch, "wikiIndex-build.bin").getPath();
+		claims = new ArrayList<ClaimSource.Claim>();
+		try (ClaimSource claimReader = new ClaimSource(CLAIMS_SAMPLE_FILE)) {
+			while(claimReader.hasNext()) {
+				claims.add(claimReader.next());
+			}
+		}
+		phrases = getClaimPhrases(claims);
+		topics = getValidPhrases(phrases);
+	}
+
+	public void prepareCandidates() {
+		pipelines = FEVER_OSU.establishPipelines();
+		candidates = new ArrayList<Object[]>();
+		for(ClaimSource.Claim claimInfo : claims) {
+			String claim = claimInfo.getClaim();
+			CoreDocument document = new CoreDocument(claim);
+			pipelines.get(PipelineRegistry.Profile.CLAIM).annotate(document);
+			CoreSentence claimDoc = document.sentences().get(0);
+			ArrayList<String[]> claimNE = new AnnotatedSentence(FEVER_OSU.formatSentence(claim), pipelines.get(PipelineRegistry.Profile.NER)).getNamedEntities();
+			String root = claimDoc.dependencyParse().getFirstRoot().originalText().toLowerCase();
+			ClaimContext context = new ClaimContext(claim, root, FEVER_OSU.isVerb(root, pipelines), claimDoc.constituencyParse(), claimNE);
+			ArrayList<String> claimTopics = getValidPhrases(getClaimPhrases(Collections.singletonList(claimInfo)));
+			for(WikiDocument wiki : FEVER_OSU.getDocsFromTopics(claimTopics)) {
+				String wikiName = Normalizer.normalize(wiki.getId(), Normalizer.Form.NFC);
+				String wikiTitle = FEVER_OSU.formatSentence(wikiName.replace("_", " ")).toLowerCase();
+				for(AnnotatedSentence candidate : FEVER_OSU.getCandidateSentences(pipelines, context, wiki)) {
+					if(candidate == null) {
+						continue;
+					}
+					candidate.getWords();
+					String lowerSentence = candidate.getText().toLowerCase();
+					Object[] entry = {context, candidate, lowerSentence, context.getMatcher(wikiTitle).match(lowerSentence),
+							context.getNounsAndNamedEntities(wikiTitle), wikiTitle};
+					candidates.add(entry);
+				}
+			}
+		}
+		System.out.println(candidates.size() + " candidate lines for " + claims.size() + " claims.");
+	}
+
+	public void buildWikiIndex() throws IOException {
+		WikiIndex.build(WIKI_SAMPLE_DIR, scratchIndexFileName);
+	}
+
+	public int isValidWiki() {
+		int valid = 0;
+		for(String phrase : phrases) {
+			if(FEVER_OSU.isValidWiki(phrase)) {
+				valid++;
+			}
+		}
+		return valid;
+	}
+
+	public int formatWiki() {
+		int length = 0;
+		for(String phrase : phrases) {
+			length += FEVER_OSU.formatWiki(phrase).length();
+		}
+		return length;
+	}
+
+	// with an empty document cache, so every page is read and parsed
+	public Object getDocsFromTopics() {
+		FEVER_OSU.documentCache = new DocumentCache(FEVER_OSU.documentCacheBytes);
+		return FEVER_OSU.getDocsFromTopics(topics);
+	}
+
+	public Object getNamedEntities() {
+		String claim = nextClaim().getClaim();
+		return new AnnotatedSentence(FEVER_OSU.formatSentence(claim), pipelines.get(PipelineRegistry.Profile.NER)).getNamedEntities();
+	}
+
+	@SuppressWarnings("unchecked")
+	public int containsNamedEntities() {
+		int passed = 0;
+		for(Object[] entry : candidates) {
+			if(FEVER_OSU.containsNamedEntities((AnnotatedSentence) entry[1], (String) entry[2], (PhraseMatcher.Matches) entry[3],
+					(ClaimContext) entry[0], (List<String[]>) entry[4], (String) entry[5], pipelines)) {
+				passed++;
+			}
+		}
+		return passed;
+	}
+
+	public String verifyClaim() throws Exception {
+		return FEVER_OSU.verifyClaim(pipelines, nextClaim(), nextClaim);
+	}
+
+	private ClaimSource.Claim nextClaim() {
+		ClaimSource.Claim claimInfo = claims.get(nextClaim % claims.size());
+		nextClaim++;
+		return claimInfo;
+	}
+
+	private static String[] getClaimPhrases(List<ClaimSource.Claim> claims) {
+		Set<String> phrases = new LinkedHashSet<String>();
+		for(ClaimSource.Claim claimInfo : claims) {
+			String[] words = claimInfo.getClaim().replaceAll("[.,]$", "").split(" ");
+			for(int start = 0; start < words.length; start++) {
+				StringBuilder phrase = new StringBuilder();
+				for(int end = start; end < words.length && end < start + MAX_PHRASE_TOKENS; end++) {
+					if(end > start) {
+						phrase.append(' ');
+					}
+					phrase.append(words[end]);
+					phrases.add(phrase.toString());
+				}
+			}
+		}
+		return phrases.toArray(new String[0]);
+	}
+
+	private static ArrayList<String> getValidPhrases(String[] phrases) {
+		ArrayList<String> valid = new ArrayList<String>();
+		for(String phrase : phrases) {
+			if(FEVER_OSU.isValidWiki(phrase)) {
+				valid.add(phrase);
+			}
+		}
+		return valid;
+	}
+
+}
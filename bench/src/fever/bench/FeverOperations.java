@@ -0,0 +1,35 @@
+package fever.bench;
+
+/*
+ * The operations the benchmarks time. FEVER_OSU lives in the default package, which a
+ * benchmark (JMH needs a named package) cannot refer to, so the implementation is the
+ * default package class BenchmarkOperations, loaded by name once per trial. Every call after
+ * that is a plain interface call.
+ */
+public interface FeverOperations {
+
+	// builds the wiki index over the sample dump and loads everything else FEVER_OSU needs
+	void loadSample() throws Exception;
+
+	// parses and annotates the sample claims and collects their candidate lines
+	void prepareCandidates() throws Exception;
+
+	void buildWikiIndex() throws Exception;
+
+	int isValidWiki();
+
+	int formatWiki();
+
+	Object getDocsFromTopics();
+
+	Object getNamedEntities();
+
+	int containsNamedEntities();
+
+	String verifyClaim() throws Exception;
+
+	static FeverOperations load() throws ReflectiveOperationException {
+		return Class.forName("BenchmarkOperations").asSubclass(FeverOperations.class).getDeclaredConstructor().newInstance();
+	}
+
+}
@@ -0,0 +1,58 @@
+package fever.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Document retrieval without CoreNLP: building the wiki index over the sample dump, checking
+ * and formatting every short phrase of the sample claims as a title, and fetching the pages
+ * those phrases name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RetrievalBenchmark {
+
+	private FeverOperations operations;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		operations = FeverOperations.load();
+		operations.loadSample();
+	}
+
+	@Benchmark
+	public void buildWikiIndex() throws Exception {
+		operations.buildWikiIndex();
+	}
+
+	@Benchmark
+	public int isValidWiki() {
+		return operations.isValidWiki();
+	}
+
+	@Benchmark
+	public int formatWiki() {
+		return operations.formatWiki();
+	}
+
+	@Benchmark
+	public Object getDocsFromTopics() {
+		return operations.getDocsFromTopics();
+	}
+
+}
@@ -0,0 +1,55 @@
+package fever.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * The CoreNLP side of a claim: named entities of one claim, the containsNamedEntities check
+ * over every candidate line of the sample claims, and verifyClaim end to end. Candidates are
+ * annotated during setup, so containsNamedEntities is measured on its own. getNamedEntities
+ * and verifyClaim take the next sample claim on each call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class SentenceFilterBenchmark {
+
+	private FeverOperations operations;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		operations = FeverOperations.load();
+		operations.loadSample();
+		operations.prepareCandidates();
+	}
+
+	@Benchmark
+	public Object getNamedEntities() {
+		return operations.getNamedEntities();
+	}
+
+	@Benchmark
+	public int containsNamedEntities() {
+		return operations.containsNamedEntities();
+	}
+
+	@Benchmark
+	public String verifyClaim() throws Exception {
+		return operations.verifyClaim();
+	}
+
+}
@@ -0,0 +1,156 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.CoreAnnotations.LemmaAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.NamedEntityTagAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.PartOfSpeechAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TextAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.CoreMap;
+
+/*
+ * One candidate sentence and its CoreNLP annotations. The pipeline runs the first time any
+ * annotation is asked for and the results are kept as plain arrays, so the named entity,
+ * lemma and synonym checks in findSentences all share a single annotate call per sentence.
+ * Words, tags and entities cover the first CoreNLP sentence, lemmas cover the whole text.
+ * annotateAll runs the pipeline over many sentences in one batch instead.
+ */
+public class AnnotatedSentence {
+
+	private final String text;
+	private StanfordCoreNLP pipeline;
+	private String[] words;
+	private String[] posTags;
+	private String[] nerTags;
+	private String[] lemmas;
+
+	public AnnotatedSentence(String text, StanfordCoreNLP pipeline) {
+		this.text = text;
+		this.pipeline = pipeline;
+	}
+
+	public AnnotatedSentence(String text, String[] words, String[] posTags, String[] nerTags, String[] lemmas) {
+		this.text = text;
+		this.words = words;
+		this.posTags = posTags;
+		this.nerTags = nerTags;
+		this.lemmas = lemmas;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public String[] getWords() {
+		annotate();
+		return words;
+	}
+
+	public String[] getPosTags() {
+		annotate();
+		return posTags;
+	}
+
+	public String[] getNerTags() {
+		annotate();
+		return nerTags;
+	}
+
+	public List<String> getLemmas() {
+		annotate();
+		return Arrays.asList(lemmas);
+	}
+
+	public ArrayList<String[]> getNamedEntities() {
+		annotate();
+		ArrayList<String[]> namedEntities = new ArrayList<String[]>();
+		String neTag = "";
+		String namedEntity = "";
+		boolean neActive = false;
+		for(int i = 0; i < words.length; i++) {
+			String ne = nerTags[i];
+			if(!neActive && !ne.equals("O")) {
+				neActive = true;
+				neTag = ne;
+				namedEntity += words[i];
+			}
+			else if(neActive && ne.equals(neTag)) {
+				namedEntity += " " + words[i];
+			}
+			else if(neActive && !ne.equals(neTag) && !ne.equals("O")) {
+				String[] neInfo = {namedEntity.toLowerCase(), neTag};
+				namedEntities.add(neInfo);
+				neTag = ne;
+				namedEntity = words[i];
+			}
+			else if(neActive && ne.equals("O")) {
+				neActive = false;
+				String[] neInfo = {namedEntity.toLowerCase(), neTag};
+				namedEntities.add(neInfo);
+				namedEntity = "";
+				neTag = "";
+			}
+		}
+		if(neActive) {
+			String[] neInfo = {namedEntity.toLowerCase(), neTag};
+			namedEntities.add(neInfo);
+		}
+		return namedEntities;
+	}
+
+	// annotates every sentence not annotated yet through one pipeline.annotate(Iterable, numThreads) call
+	public static void annotateAll(List<AnnotatedSentence> sentences, StanfordCoreNLP pipeline, int numThreads) {
+		List<AnnotatedSentence> pending = new ArrayList<AnnotatedSentence>();
+		List<Annotation> documents = new ArrayList<Annotation>();
+		for(AnnotatedSentence sentence : sentences) {
+			if(sentence.lemmas == null) {
+				pending.add(sentence);
+				documents.add(new Annotation(sentence.text));
+			}
+		}
+		if(documents.isEmpty()) {
+			return;
+		}
+		pipeline.annotate(documents, numThreads);
+		for(int i = 0; i < pending.size(); i++) {
+			pending.get(i).setAnnotations(documents.get(i));
+		}
+	}
+
+	private void annotate() {
+		if(lemmas != null) {
+			return;
+		}
+		Annotation document = new Annotation(text);
+		pipeline.annotate(document);
+		setAnnotations(document);
+	}
+
+	private void setAnnotations(Annotation document) {
+		List<CoreMap> sentences = document.get(SentencesAnnotation.class);
+		List<String> allLemmas = new ArrayList<String>();
+		for(CoreMap sentence : sentences) {
+			for(CoreLabel token : sentence.get(TokensAnnotation.class)) {
+				allLemmas.add(token.get(LemmaAnnotation.class));
+			}
+		}
+		List<CoreLabel> tokens = sentences.isEmpty() ? new ArrayList<CoreLabel>() : sentences.get(0).get(TokensAnnotation.class);
+		words = new String[tokens.size()];
+		posTags = new String[tokens.size()];
+		nerTags = new String[tokens.size()];
+		for(int i = 0; i < tokens.size(); i++) {
+			CoreLabel token = tokens.get(i);
+			words[i] = token.get(TextAnnotation.class);
+			posTags[i] = token.get(PartOfSpeechAnnotation.class);
+			nerTags[i] = token.get(NamedEntityTagAnnotation.class);
+		}
+		lemmas = allLemmas.toArray(new String[0]);
+		pipeline = null;
+	}
+
+}
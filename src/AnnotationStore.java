@@ -0,0 +1,374 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONException;
+
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+/*
+ * Offline CoreNLP annotations for every line of the wiki-dump, keyed by wiki index entry.
+ * Words, POS tags, NER tags and lemmas share one vocabulary and each page is stored as a
+ * varint record of four id columns, so findSentences can rebuild its AnnotatedSentences with
+ * one positional read and no pipeline. The store records the dump size and entry count of the
+ * index it was built from and refuses to open against any other index.
+ *
+ * Layout: header, page records, recordOffsets[n], recordLengths[n], vocabStarts[v+1],
+ * vocabulary bytes, footer (table position, vocabulary position, vocabulary size, magic).
+ * A page record is sentenceCount, then tokenCount and lemmaCount per sentence, then the word,
+ * POS, NER and lemma id columns for all of its sentences.
+ */
+public class AnnotationStore {
+
+	static final int MAGIC = 0x46455641;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 24;
+	static final int FOOTER_SIZE = 24;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer table;
+	private final MappedByteBuffer vocabulary;
+	private final int entryCount;
+	private final int vocabularySize;
+
+	private AnnotationStore(FileChannel channel, MappedByteBuffer table, MappedByteBuffer vocabulary, int entryCount, int vocabularySize) {
+		this.channel = channel;
+		this.table = table;
+		this.vocabulary = vocabulary;
+		this.entryCount = entryCount;
+		this.vocabularySize = vocabularySize;
+	}
+
+	public static AnnotationStore open(String storeFileName, WikiIndex wikiIndex) throws IOException {
+		FileChannel channel = FileChannel.open(new File(storeFileName).toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header, 0);
+			ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+			readFully(channel, footer, channel.size() - FOOTER_SIZE);
+			if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION || footer.getInt(20) != MAGIC) {
+				throw new IOException("Unrecognized annotation store format");
+			}
+			int entryCount = header.getInt(16);
+			if(header.getLong(8) != wikiIndex.getDumpSize() || entryCount != wikiIndex.size()) {
+				throw new IOException("Annotation store " + storeFileName + " was built from a different wiki index");
+			}
+			long tablePos = footer.getLong(0);
+			long vocabularyPos = footer.getLong(8);
+			int vocabularySize = footer.getInt(16);
+			MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, tablePos, vocabularyPos - tablePos);
+			MappedByteBuffer vocabulary = channel.map(FileChannel.MapMode.READ_ONLY, vocabularyPos, channel.size() - FOOTER_SIZE - vocabularyPos);
+			return new AnnotationStore(channel, table, vocabulary, entryCount, vocabularySize);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	// returns null when the page was not annotated or its lines no longer match the texts given
+	public AnnotatedSentence[] read(int entry, String[] texts) throws IOException {
+		long offset = table.getLong(8 * entry);
+		if(offset < 0) {
+			return null;
+		}
+		int length = table.getInt(8 * entryCount + 4 * entry);
+		ByteBuffer record = ByteBuffer.allocate(length);
+		readFully(channel, record, offset);
+		int[] pos = {0};
+		byte[] bytes = record.array();
+		int sentenceCount = readVarInt(bytes, pos);
+		if(sentenceCount != texts.length) {
+			return null;
+		}
+		int[] tokenCounts = new int[sentenceCount];
+		int[] lemmaCounts = new int[sentenceCount];
+		for(int i = 0; i < sentenceCount; i++) {
+			tokenCounts[i] = readVarInt(bytes, pos);
+			lemmaCounts[i] = readVarInt(bytes, pos);
+		}
+		String[][] words = readColumn(bytes, pos, tokenCounts);
+		String[][] posTags = readColumn(bytes, pos, tokenCounts);
+		String[][] nerTags = readColumn(bytes, pos, tokenCounts);
+		String[][] lemmas = readColumn(bytes, pos, lemmaCounts);
+		AnnotatedSentence[] sentences = new AnnotatedSentence[sentenceCount];
+		for(int i = 0; i < sentenceCount; i++) {
+			sentences[i] = new AnnotatedSentence(texts[i], words[i], posTags[i], nerTags[i], lemmas[i]);
+		}
+		return sentences;
+	}
+
+	public int getVocabularySize() {
+		return vocabularySize;
+	}
+
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private String[][] readColumn(byte[] bytes, int[] pos, int[] counts) {
+		String[][] column = new String[counts.length][];
+		for(int i = 0; i < counts.length; i++) {
+			column[i] = new String[counts[i]];
+			for(int j = 0; j < counts[i]; j++) {
+				column[i][j] = getVocabularyString(readVarInt(bytes, pos));
+			}
+		}
+		return column;
+	}
+
+	private String getVocabularyString(int id) {
+		int start = vocabulary.getInt(4 * id);
+		int end = vocabulary.getInt(4 * (id + 1));
+		int bytesPos = 4 * (vocabularySize + 1);
+		byte[] stringBytes = new byte[end - start];
+		for(int i = 0; i < stringBytes.length; i++) {
+			stringBytes[i] = vocabulary.get(bytesPos + start + i);
+		}
+		return new String(stringBytes, StandardCharsets.UTF_8);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, offset + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of annotation store");
+			}
+		}
+	}
+
+	private static int readVarInt(byte[] bytes, int[] pos) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = bytes[pos[0]++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while((b & 0x80) != 0);
+		return value;
+	}
+
+	private static void writeVarInt(ByteBuffer[] record, int value) {
+		if(record[0].remaining() < 5) {
+			ByteBuffer larger = ByteBuffer.allocate(record[0].capacity() * 2);
+			record[0].flip();
+			larger.put(record[0]);
+			record[0] = larger;
+		}
+		while((value & ~0x7F) != 0) {
+			record[0].put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		record[0].put((byte) value);
+	}
+
+	private static String getSentenceTextFromWikiLines(String sentenceInfo) {
+		String sentence;
+		String[] tabs = sentenceInfo.split("\\t");
+		if(tabs[0].equals("0")) {
+			sentence = tabs[1];
+		} else {
+			sentence = tabs[0];
+		}
+		return sentence;
+	}
+
+	/*
+	 * Annotates every page in the index on numWorkers threads, each with its own NER pipeline.
+	 * Pages are visited in file/offset order so the dump is read front to back.
+	 */
+	public static void build(final WikiIndex wikiIndex, final DocumentStore documentStore, String storeFileName, int numWorkers)
+			throws IOException, InterruptedException {
+		final int entryCount = wikiIndex.size();
+		final Integer[] fileOrder = new Integer[entryCount];
+		for(int i = 0; i < entryCount; i++) {
+			fileOrder[i] = i;
+		}
+		Arrays.sort(fileOrder, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				int cmp = Integer.compare(wikiIndex.getFileId(a), wikiIndex.getFileId(b));
+				return cmp != 0 ? cmp : Long.compare(wikiIndex.getOffset(a), wikiIndex.getOffset(b));
+			}
+		});
+
+		File tempFile = new File(storeFileName + ".tmp");
+		final RecordWriter writer = new RecordWriter(new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 20)), entryCount);
+		try {
+			writer.out.writeInt(MAGIC);
+			writer.out.writeInt(VERSION);
+			writer.out.writeLong(wikiIndex.getDumpSize());
+			writer.out.writeInt(entryCount);
+			writer.out.writeInt(0);
+			writer.position = HEADER_SIZE;
+
+			final AtomicInteger next = new AtomicInteger();
+			List<Thread> workers = new ArrayList<Thread>();
+			for(int i = 0; i < numWorkers; i++) {
+				Thread worker = new Thread(new Runnable() {
+					public void run() {
+						StanfordCoreNLP pipeline = new PipelineRegistry().get(PipelineRegistry.Profile.NER);
+						int k;
+						while((k = next.getAndIncrement()) < entryCount && writer.error == null) {
+							int entry = fileOrder[k];
+							try {
+								WikiDocument wikiDoc = WikiDocument.fromJson(documentStore.read(wikiIndex.getFileId(entry), wikiIndex.getOffset(entry)));
+								String[] wikiLines = wikiDoc.getSentences();
+								AnnotatedSentence[] sentences = new AnnotatedSentence[wikiLines.length];
+								for(int i = 0; i < wikiLines.length; i++) {
+									sentences[i] = new AnnotatedSentence(getSentenceTextFromWikiLines(wikiLines[i]), pipeline);
+									// annotate here, outside the writer lock
+									sentences[i].getWords();
+								}
+								writer.write(entry, sentences);
+							} catch (JSONException e) {
+								e.printStackTrace();
+							} catch (IOException e) {
+								writer.fail(e);
+							} catch (RuntimeException e) {
+								// a page CoreNLP cannot handle is left without a record, as an unreadable one is
+								e.printStackTrace();
+								System.out.println("Could not annotate page " + wikiIndex.getTitle(entry) + ". Skipping");
+							}
+							if((k + 1) % 10000 == 0) {
+								System.out.println("Annotated " + (k + 1) + "/" + entryCount + " pages.");
+							}
+						}
+					}
+				}, "annotation-worker-" + i);
+				worker.start();
+				workers.add(worker);
+			}
+			for(Thread worker : workers) {
+				worker.join();
+			}
+			if(writer.error != null) {
+				throw writer.error;
+			}
+			writer.finish();
+		} finally {
+			writer.out.close();
+		}
+		File storeFile = new File(storeFileName);
+		if(storeFile.exists()) {
+			storeFile.delete();
+		}
+		if(!tempFile.renameTo(storeFile)) {
+			throw new IOException("Could not move " + tempFile.getName() + " to " + storeFileName);
+		}
+	}
+
+	/*
+	 * Append side of build(). Pages arrive from the workers in any order, so each record's
+	 * position is kept in the offset table and the vocabulary is assigned as strings are seen.
+	 */
+	private static class RecordWriter {
+		private final DataOutputStream out;
+		private final long[] recordOffsets;
+		private final int[] recordLengths;
+		private final Map<String, Integer> vocabularyIds = new HashMap<String, Integer>();
+		private final List<String> vocabulary = new ArrayList<String>();
+		private long position;
+		private volatile IOException error;
+
+		RecordWriter(DataOutputStream out, int entryCount) {
+			this.out = out;
+			this.recordOffsets = new long[entryCount];
+			this.recordLengths = new int[entryCount];
+			Arrays.fill(recordOffsets, -1);
+		}
+
+		synchronized void write(int entry, AnnotatedSentence[] sentences) throws IOException {
+			ByteBuffer[] record = {ByteBuffer.allocate(1 << 12)};
+			writeVarInt(record, sentences.length);
+			for(AnnotatedSentence sentence : sentences) {
+				writeVarInt(record, sentence.getWords().length);
+				writeVarInt(record, sentence.getLemmas().size());
+			}
+			for(AnnotatedSentence sentence : sentences) {
+				writeColumn(record, sentence.getWords());
+			}
+			for(AnnotatedSentence sentence : sentences) {
+				writeColumn(record, sentence.getPosTags());
+			}
+			for(AnnotatedSentence sentence : sentences) {
+				writeColumn(record, sentence.getNerTags());
+			}
+			for(AnnotatedSentence sentence : sentences) {
+				for(String lemma : sentence.getLemmas()) {
+					writeVarInt(record, getId(lemma));
+				}
+			}
+			out.write(record[0].array(), 0, record[0].position());
+			recordOffsets[entry] = position;
+			recordLengths[entry] = record[0].position();
+			position += record[0].position();
+		}
+
+		void fail(IOException e) {
+			error = e;
+		}
+
+		void finish() throws IOException {
+			long tablePos = position;
+			for(long offset : recordOffsets) {
+				out.writeLong(offset);
+			}
+			for(int length : recordLengths) {
+				out.writeInt(length);
+			}
+			long vocabularyPos = tablePos + 12L * recordOffsets.length;
+			byte[][] vocabularyBytes = new byte[vocabulary.size()][];
+			int start = 0;
+			for(int i = 0; i < vocabularyBytes.length; i++) {
+				vocabularyBytes[i] = vocabulary.get(i).getBytes(StandardCharsets.UTF_8);
+				out.writeInt(start);
+				start += vocabularyBytes[i].length;
+			}
+			out.writeInt(start);
+			for(byte[] bytes : vocabularyBytes) {
+				out.write(bytes);
+			}
+			out.writeLong(tablePos);
+			out.writeLong(vocabularyPos);
+			out.writeInt(vocabularyBytes.length);
+			out.writeInt(MAGIC);
+		}
+
+		private void writeColumn(ByteBuffer[] record, String[] values) {
+			for(String value : values) {
+				writeVarInt(record, getId(value));
+			}
+		}
+
+		private int getId(String value) {
+			if(value == null) {
+				value = "";
+			}
+			Integer id = vocabularyIds.get(value);
+			if(id == null) {
+				id = vocabulary.size();
+				vocabulary.add(value);
+				vocabularyIds.put(value, id);
+			}
+			return id;
+		}
+	}
+
+}
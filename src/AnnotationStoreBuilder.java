@@ -0,0 +1,43 @@
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/*
+ * Offline job: annotates every line of the wiki-dump once and writes the results to
+ * annotationStoreFileName, where FEVER_OSU and SentenceFinder pick them up instead of running
+ * CoreNLP on evidence text. Rerun whenever the wiki-dump (and so the wiki index) changes.
+ */
+public class AnnotationStoreBuilder {
+
+	static String wikiDirName = "wiki-dump";
+	static String wikiIndexFileName = "wikiIndex.bin";
+	static String annotationStoreFileName = "wikiAnnotations.bin";
+	static int numWorkers = Runtime.getRuntime().availableProcessors();
+
+	public static void main(String[] args) {
+		DateTimeFormatter dtf = DateTimeFormatter.ofPattern("HH:mm:ss");  
+	    System.out.println("Beginning wiki annotation. Time: "+dtf.format(LocalDateTime.now()));
+		WikiIndex wikiIndex;
+	    try {
+	    	wikiIndex = WikiIndex.load(wikiDirName, wikiIndexFileName);
+	    } catch (IOException e) {
+	    	System.out.println("Could not load wiki index "+wikiIndexFileName);
+	    	e.printStackTrace();
+	    	return;
+	    }
+		System.out.println("wikiIndex loaded. Time: "+dtf.format(LocalDateTime.now()));
+		DocumentStore documentStore = new DocumentStore(wikiDirName, wikiIndex.getFileNames());
+		try {
+			AnnotationStore.build(wikiIndex, documentStore, annotationStoreFileName, numWorkers);
+			System.out.println("Annotation store written to " + annotationStoreFileName + ". Time: "+dtf.format(LocalDateTime.now()));
+		} catch (IOException e) {
+			System.out.println("Could not write annotation store "+annotationStoreFileName);
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		} finally {
+			documentStore.close();
+		}
+	}
+
+}
@@ -1,13 +1,10 @@
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.text.Normalizer;
 import java.time.LocalDateTime;
@@ -18,10 +15,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Scanner;
 import java.util.stream.Collectors;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -35,64 +30,44 @@ public class BayesianCorrelation {
 	static String claimsFileName = "train.jsonl";
 	static String correlationsResultsFileName = "rootCorrelations.txt";
 	static String wikiDirName = "wiki-dump";
+	static String wikiIndexFileName = "wikiIndex.bin";
 	static String rootCorrelations = "rootCorrelations.ser";
 	static int numClaimsToTest = 150000;
 	
-	static Map<String, Map<String, Object>> wikiMap;
+	static WikiIndex wikiIndex;
+	static DocumentStore documentStore;
 	//static Map<String, ArrayList<String>> disambiguationMap;
 	
 	public static void main(String[] args) {
 		DateTimeFormatter dtf = DateTimeFormatter.ofPattern("HH:mm:ss");  
 	    System.out.println("Beginning document processing. Time: "+dtf.format(LocalDateTime.now()));	    
 		
-		String statement = "";
 		Properties props = new Properties();
 		props.setProperty("annotators", "tokenize, ssplit, pos, parse, depparse, lemma");
 	    props.setProperty("coref.algorithm", "neural");
 	    StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
 	    System.out.println("CoreNLP pipeline established. Time: "+dtf.format(LocalDateTime.now()));
 		try {
-			Scanner claimReader = new Scanner(new FileReader(claimsFileName));
+			ClaimSource claimReader = new ClaimSource(claimsFileName);
 			File oldFile = new File(correlationsResultsFileName);
 			if(oldFile.exists()) {
 				oldFile.delete();
 			}
 			BufferedWriter writer = new BufferedWriter(new FileWriter(correlationsResultsFileName, true));
-			try {
-		         FileInputStream fileIn = new FileInputStream("wikiMap.ser");
-		         ObjectInputStream in = new ObjectInputStream(fileIn);
-		         System.out.println("Attempting to read wikiMap object");
-		         wikiMap = (Map<String, Map<String, Object>>) in.readObject();
-		         in.close();
-		         fileIn.close();
-		      } catch (IOException i) {
-		         System.out.println("Unable to read wikiMap object. Generating new object.");
-		         getWikiMap(wikiDirName);
-				 try {
-			         FileOutputStream fileOut = new FileOutputStream("wikiMap.ser");
-			         ObjectOutputStream out = new ObjectOutputStream(fileOut);
-			         out.writeObject(wikiMap);
-			         out.close();
-			         fileOut.close();
-			      } catch (IOException io) {
-			         io.printStackTrace();
-			      }
-		      } catch (ClassNotFoundException e) {
-				e.printStackTrace();
-			}
+			wikiIndex = WikiIndex.load(wikiDirName, wikiIndexFileName);
+			documentStore = new DocumentStore(wikiDirName, wikiIndex.getFileNames());
 			
 			
-			System.out.println("wikiMap compiled. Time: "+dtf.format(LocalDateTime.now()));
+			System.out.println("wikiIndex loaded. Time: "+dtf.format(LocalDateTime.now()));
 			int claimCount =0;
 			Map<String, Map<String, Object>> rootCorrelation = new HashMap<String, Map<String, Object>>();
 			while(claimReader.hasNext() && claimCount < numClaimsToTest) {	
 				claimCount++;
-				statement = claimReader.nextLine();
 				try {
-				    JSONObject claimJson = new JSONObject(statement);
-				    String claim = Normalizer.normalize(claimJson.getString("claim"), Normalizer.Form.NFC);
-				    String label = claimJson.getString("label");
-				    JSONArray answerEvidence = (JSONArray) claimJson.get("evidence");
+				    ClaimSource.Claim claimInfo = claimReader.next();
+				    String claim = claimInfo.getClaim();
+				    String label = claimInfo.getLabel();
+				    List<List<Object[]>> answerEvidence = claimInfo.getEvidence();
 				    if(claimCount % 100 == 0) {
 				    	System.out.println("Claim "+ claimCount + ". Time: "+dtf.format(LocalDateTime.now()));
 				    }
@@ -109,14 +84,14 @@ public class BayesianCorrelation {
 				    
 				    ArrayList<Integer> evidenceSentences = new ArrayList<Integer>();
 				    String wikiName = "";
-				    for(int i = 0; i < answerEvidence.length(); i++) {
-				    	JSONArray evidenceSet = answerEvidence.getJSONArray(i);
-						JSONArray primarySentence = evidenceSet.getJSONArray(0);
+				    for(int i = 0; i < answerEvidence.size(); i++) {
+				    	List<Object[]> evidenceSet = answerEvidence.get(i);
+						Object[] primarySentence = evidenceSet.get(0);
 						
 						int sentNum;
-						if(!primarySentence.get(2).equals(null) && evidenceSet.length() == 1) { //only count solo evidence?
-							wikiName = Normalizer.normalize(primarySentence.get(2).toString(), Normalizer.Form.NFC);
-							sentNum = primarySentence.getInt(3);
+						if(primarySentence[2] != null && evidenceSet.size() == 1) { //only count solo evidence?
+							wikiName = primarySentence[2].toString();
+							sentNum = (Integer) primarySentence[3];
 							if(!evidenceSentences.contains(sentNum)) {
 								evidenceSentences.add(sentNum);
 							}
@@ -261,71 +236,13 @@ public class BayesianCorrelation {
 			System.out.println("Could not open file  "+claimsFileName);
 			e.printStackTrace();
 		} catch (IOException e) {
-			System.out.println("There was an IO Exception during statement " + statement);
+			System.out.println("There was an IO Exception reading " + claimsFileName);
 			e.printStackTrace();
 		}
 		
 	}
 	
-	public static void getWikiMap(String wikiDirName) {
-		wikiMap = new HashMap<String, Map <String, Object>>();
-		//disambiguationMap = new HashMap<String, ArrayList<String>>();
-		
-		File wikiDir = new File(wikiDirName);
-		File[] wikiEntries = wikiDir.listFiles();
-		int filesProcessed = 0;
-		if (wikiEntries != null){
-			for (File wikiEntryList : wikiEntries) {
-				try {
-					System.out.print("*");
-					Scanner s = new Scanner(wikiEntryList);
-					long byteOffset = 0;
-						while(s.hasNextLine()) {
-							String wikiEntry = s.nextLine();
-						    JSONObject wikiJson = new JSONObject(wikiEntry);
-						    String id = Normalizer.normalize(wikiJson.getString("id"), Normalizer.Form.NFC).toLowerCase();
-						    if(!id.isEmpty()) {
-						    	String fileName = wikiEntryList.getName();
-						    	Map<String, Object> docLocation = new HashMap<String, Object>();
-						    	docLocation.put("fileName", fileName);
-						    	docLocation.put("offset", byteOffset);
-								wikiMap.put(id, docLocation);
-								
-//								int paren = id.indexOf("-lrb-");
-//								if(paren > 0) {
-//									String base = id.substring(0, paren-1).toLowerCase();
-//									ArrayList<String> disambiguationChildren = new ArrayList<String>();
-//									if(disambiguationMap.containsKey(base)) {
-//										disambiguationChildren = disambiguationMap.get(base);
-//										disambiguationChildren.add(id);
-//										disambiguationMap.put(base, disambiguationChildren);
-//									}
-//									else {
-//										disambiguationChildren.add(id);
-//										disambiguationMap.put(base, disambiguationChildren);
-//									}
-//								}
-						    }
-						    byteOffset += wikiEntry.getBytes().length;
-							byteOffset += 1;
-						}
-						filesProcessed++;
-						if(filesProcessed % 10 == 0 || filesProcessed == 109) {
-							System.out.println("\nWiki processing "+filesProcessed+"/109 done.");
-						}
-						
-					s.close();
-				} catch (FileNotFoundException e) {
-					System.out.println("Could not open file  "+wikiEntryList.getName());
-					e.printStackTrace();
-				} catch (JSONException e) {
-					e.printStackTrace();
-				}
-			}
-		}
-	}
-	
-	private static String formatSentence(String sentence) {
+private static String formatSentence(String sentence) {
 		String newSent = sentence.toLowerCase();
 		newSent = newSent.replaceAll(",", " ,").replaceAll("\\.", " .").replaceAll(";", " ;").replaceAll(":", " :").replaceAll("\'s", " \'s");
 		newSent = newSent.replaceAll("-lrb-", "-lrb- ").replaceAll("-rrb-", " -rrb-").replaceAll("-rsb-", " -rsb-").replaceAll("-lsb-", " -lsb-");
@@ -336,17 +253,13 @@ public class BayesianCorrelation {
 	private static ArrayList<Map<String, String>> getDocsFromTopics(ArrayList<String> possibleTopics) {
 		ArrayList<Map<String, String>> wikiDocs = new ArrayList<Map<String, String>>();
 		for(String topic: possibleTopics) {
-			String urlTitle = topic.replace(' ', '_').toLowerCase();
 			Map<String, String> wikiDoc = new HashMap<String, String>();
 //			boolean emptyDisam = false;
-			if (!topic.isEmpty() && wikiMap.containsKey(urlTitle)){
-				Map<String, Object> fileInfo = wikiMap.get(urlTitle);
-				String wikiListName = wikiDirName + "\\" + fileInfo.get("fileName");
+			String wikiTitle = wikiIndex.resolveTitle(topic);
+			int entry = wikiTitle == null ? -1 : wikiIndex.find(wikiTitle);
+			if (!topic.isEmpty() && entry >= 0){
 				try {
-					BufferedReader reader = new BufferedReader(new FileReader(wikiListName)); 
-					Long byteOffset = (Long) fileInfo.get("offset");
-					reader.skip(byteOffset);
-				    String wikiEntry = reader.readLine();
+				    String wikiEntry = documentStore.read(wikiIndex.getFileId(entry), wikiIndex.getOffset(entry));
 				    JSONObject wikiJson = new JSONObject(wikiEntry);
 //				    if (wikiJson.getString("text").toLowerCase().contains((topic+" may refer to : "))) {
 //			    		ArrayList<Map<String, String>> disambiguationChildren = findDisambiguationChildren(wikiJson);
@@ -365,15 +278,10 @@ public class BayesianCorrelation {
 				    wikiDoc.put("text", (Normalizer.normalize(wikiJson.getString("text"), Normalizer.Form.NFC)));
 				    wikiDoc.put("lines", (Normalizer.normalize(wikiJson.getString("lines"), Normalizer.Form.NFC)));
 				    wikiDocs.add(wikiDoc);
-				    reader.close();
-				}
-				
-				catch (FileNotFoundException e) {
-					System.out.println("Could not open file  "+fileInfo.get("fileName"));
-					e.printStackTrace();
 				} catch (JSONException e) {
 					e.printStackTrace();
 				} catch (IOException e) {
+					System.out.println("Could not read file  "+wikiIndex.getFileName(entry));
 					e.printStackTrace();
 				}
 				
@@ -0,0 +1,84 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.mit.jwi.item.POS;
+import edu.stanford.nlp.trees.Tree;
+
+/*
+ * Everything findSentences derives from the claim alone, worked out once per claim instead of
+ * once per evidence line: the root and whether it is a verb, the claim parse and entities,
+ * the noun/named entity list and phrase matcher for each wiki title, and the synonym lists
+ * used when a root or entity has to be swapped. A context belongs to the thread verifying
+ * its claim.
+ */
+public class ClaimContext {
+
+	private final String claim;
+	private final String root;
+	private final boolean rootVerb;
+	private final Tree constituencyTree;
+	private final List<String[]> namedEntities;
+	private final Map<String, List<String[]>> nounsAndNamedEntities = new HashMap<String, List<String[]>>();
+	private final Map<String, PhraseMatcher> matchers = new HashMap<String, PhraseMatcher>();
+	private final Map<POS, Map<String, List<String>>> synonyms = new HashMap<POS, Map<String, List<String>>>();
+
+	public ClaimContext(String claim, String root, boolean rootVerb, Tree constituencyTree, List<String[]> namedEntities) {
+		this.claim = claim;
+		this.root = root;
+		this.rootVerb = rootVerb;
+		this.constituencyTree = constituencyTree;
+		this.namedEntities = namedEntities;
+	}
+
+	public String getClaim() {
+		return claim;
+	}
+
+	public String getRoot() {
+		return root;
+	}
+
+	public boolean isRootVerb() {
+		return rootVerb;
+	}
+
+	public Tree getConstituencyTree() {
+		return constituencyTree;
+	}
+
+	public List<String[]> getNamedEntities() {
+		return namedEntities;
+	}
+
+	public List<String[]> getNounsAndNamedEntities(String wikiTitle) {
+		return nounsAndNamedEntities.get(wikiTitle);
+	}
+
+	public void putNounsAndNamedEntities(String wikiTitle, List<String[]> nane) {
+		nounsAndNamedEntities.put(wikiTitle, nane);
+	}
+
+	public PhraseMatcher getMatcher(String wikiTitle) {
+		return matchers.get(wikiTitle);
+	}
+
+	public void putMatcher(String wikiTitle, PhraseMatcher matcher) {
+		matchers.put(wikiTitle, matcher);
+	}
+
+	public List<String> getSynonyms(String word, POS pos) {
+		Map<String, List<String>> posSynonyms = synonyms.get(pos);
+		return posSynonyms == null ? null : posSynonyms.get(word);
+	}
+
+	public void putSynonyms(String word, POS pos, List<String> syns) {
+		Map<String, List<String>> posSynonyms = synonyms.get(pos);
+		if(posSynonyms == null) {
+			posSynonyms = new HashMap<String, List<String>>();
+			synonyms.put(pos, posSynonyms);
+		}
+		posSynonyms.put(word, syns);
+	}
+
+}
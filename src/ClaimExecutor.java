@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.json.JSONException;
+
+/*
+ * Runs claims on a fixed pool of worker threads, each with its own CoreNLP pipelines. The reader
+ * feeds a bounded queue and a writer thread emits results strictly in input order, so the
+ * output file lines up with the claims file no matter which worker finishes first. The writer
+ * commits the result log every commitEvery claims.
+ */
+public class ClaimExecutor {
+
+	public interface ClaimProcessor {
+		String process(PipelineRegistry pipelines, ClaimSource.Claim claimInfo, int claimNumber) throws Exception;
+	}
+
+	private static final int END_OF_INPUT = -1;
+
+	private final int numWorkers;
+	private final int queueSize;
+	private final Supplier<PipelineRegistry> pipelineFactory;
+	private final ClaimProcessor processor;
+
+	// sequence -> {claim or null, result line}
+	private final Map<Integer, Object[]> completed = new HashMap<Integer, Object[]>();
+	private int claimsRead = 0;
+	private boolean inputDone = false;
+	private int liveWorkers = 0;
+	private IOException writeError = null;
+
+	public ClaimExecutor(int numWorkers, int queueSize, Supplier<PipelineRegistry> pipelineFactory, ClaimProcessor processor) {
+		this.numWorkers = numWorkers;
+		this.queueSize = queueSize;
+		this.pipelineFactory = pipelineFactory;
+		this.processor = processor;
+	}
+
+	// claimsDone claims have already been read from claimReader and logged; maxClaims counts them too
+	public int run(ClaimSource claimReader, final int claimsDone, int maxClaims, final ResultLog log, final int commitEvery) throws IOException, InterruptedException {
+		final BlockingQueue<Object[]> claimQueue = new ArrayBlockingQueue<Object[]>(queueSize);
+		// bounds claims that are queued, in progress or finished but waiting on an earlier claim
+		final Semaphore inFlight = new Semaphore(queueSize + 2 * numWorkers);
+
+		List<Thread> workers = new ArrayList<Thread>();
+		synchronized(this) {
+			liveWorkers = numWorkers;
+		}
+		for(int i = 0; i < numWorkers; i++) {
+			Thread worker = new Thread(new Runnable() {
+				public void run() {
+					work(claimQueue);
+				}
+			}, "claim-worker-" + i);
+			worker.start();
+			workers.add(worker);
+		}
+		Thread writerThread = new Thread(new Runnable() {
+			public void run() {
+				writeInOrder(log, claimsDone, commitEvery, inFlight);
+			}
+		}, "claim-writer");
+		writerThread.start();
+
+		int claimCount = claimsDone;
+		synchronized(this) {
+			claimsRead = claimCount;
+		}
+		while(claimReader.hasNext() && claimCount < maxClaims && getWriteError() == null) {
+			inFlight.acquire();
+			Object claimInfo;
+			try {
+				claimInfo = claimReader.next();
+			} catch (JSONException e) {
+				// a bad line is reported by the worker that picks it up, keeping its place in the output
+				claimInfo = e;
+			}
+			Object[] claim = {claimCount, claimInfo};
+			if(!enqueue(claimQueue, claim)) {
+				break;
+			}
+			claimCount++;
+			synchronized(this) {
+				claimsRead = claimCount;
+			}
+		}
+		for(int i = 0; i < numWorkers; i++) {
+			Object[] endOfInput = {END_OF_INPUT, null};
+			if(!enqueue(claimQueue, endOfInput)) {
+				break;
+			}
+		}
+		synchronized(this) {
+			inputDone = true;
+			notifyAll();
+		}
+		for(Thread worker : workers) {
+			worker.join();
+		}
+		writerThread.join();
+		if(getWriteError() == null) {
+			try {
+				log.commit();
+			} catch (IOException e) {
+				synchronized(this) {
+					writeError = e;
+				}
+			}
+		}
+		if(getWriteError() != null) {
+			throw getWriteError();
+		}
+		return claimCount;
+	}
+
+	// false once every worker has exited, when nothing will take from the queue again
+	private boolean enqueue(BlockingQueue<Object[]> claimQueue, Object[] claim) throws InterruptedException {
+		while(!claimQueue.offer(claim, 100, TimeUnit.MILLISECONDS)) {
+			synchronized(this) {
+				if(liveWorkers == 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private void work(BlockingQueue<Object[]> claimQueue) {
+		try {
+			PipelineRegistry pipelines = pipelineFactory.get();
+			while(true) {
+				Object[] claim = claimQueue.take();
+				int sequence = (Integer) claim[0];
+				if(sequence == END_OF_INPUT) {
+					return;
+				}
+				ClaimSource.Claim claimInfo = claim[1] instanceof ClaimSource.Claim ? (ClaimSource.Claim) claim[1] : null;
+				String result = "";
+				try {
+					if(claim[1] instanceof JSONException) {
+						throw (JSONException) claim[1];
+					}
+					result = processor.process(pipelines, claimInfo, sequence + 1);
+				} catch(Exception e) {
+					e.printStackTrace();
+					System.out.println("Something went wrong with processeing claim " + (sequence + 1) + ". Skipping");
+				} finally {
+					// an Error still ends this worker, but its claim gets an empty line so the writer is not left waiting on it
+					synchronized(this) {
+						Object[] done = {claimInfo, result};
+						completed.put(sequence, done);
+						notifyAll();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			synchronized(this) {
+				liveWorkers--;
+				notifyAll();
+			}
+		}
+	}
+
+	private void writeInOrder(ResultLog log, int next, int commitEvery, Semaphore inFlight) {
+		try {
+			while(true) {
+				Object[] result;
+				synchronized(this) {
+					while(!completed.containsKey(next) && !(inputDone && next >= claimsRead) && liveWorkers > 0) {
+						wait();
+					}
+					if(!completed.containsKey(next)) {
+						if(inputDone && next >= claimsRead) {
+							return;
+						}
+						// every worker has exited, so claim next will never finish; keep what is done and stop
+						log.commit();
+						synchronized(this) {
+							writeError = new IOException("Every claim worker stopped before claim " + (next + 1) + " was done");
+						}
+						inFlight.release(queueSize + 2 * numWorkers);
+						return;
+					}
+					result = completed.remove(next);
+				}
+				log.append((ClaimSource.Claim) result[0], (String) result[1]);
+				next++;
+				inFlight.release();
+				if(next % commitEvery == 0) {
+					log.commit();
+				}
+			}
+		} catch (IOException e) {
+			synchronized(this) {
+				writeError = e;
+			}
+			inFlight.release(queueSize + 2 * numWorkers);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private synchronized IOException getWriteError() {
+		return writeError;
+	}
+
+}
@@ -0,0 +1,235 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Evidence found for a claim, keyed by its NFC normalized text with runs of whitespace
+ * collapsed, so a claim that is submitted again skips parsing and the document and sentence
+ * search. Entries expire after ttlMillis and the least recently used ones are evicted past
+ * maxBytes. The cache is saved with the fingerprint of the configuration that produced it;
+ * loading it under a different fingerprint starts empty.
+ */
+public class ClaimResultCache {
+
+	static final int MAGIC = 0x46455643;
+	static final int VERSION = 1;
+
+	private final String fingerprint;
+	private final long maxBytes;
+	private final long ttlMillis;
+	// claim key -> {created millis, evidence map}
+	private final LinkedHashMap<String, Object[]> results = new LinkedHashMap<String, Object[]>(1024, 0.75f, true);
+	private long currentBytes = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	public ClaimResultCache(String fingerprint, long maxBytes, long ttlMillis) {
+		this.fingerprint = fingerprint;
+		this.maxBytes = maxBytes;
+		this.ttlMillis = ttlMillis;
+	}
+
+	public static ClaimResultCache load(String fileName, String fingerprint, long maxBytes, long ttlMillis) {
+		ClaimResultCache cache = new ClaimResultCache(fingerprint, maxBytes, ttlMillis);
+		File cacheFile = new File(fileName);
+		if(!cacheFile.exists()) {
+			return cache;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 1 << 20))) {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION || !readString(in).equals(fingerprint)) {
+				System.out.println("Claim result cache " + fileName + " is from another configuration. Starting empty.");
+				return cache;
+			}
+			int count = in.readInt();
+			for(int i = 0; i < count; i++) {
+				String key = readString(in);
+				long created = in.readLong();
+				int wikiCount = in.readInt();
+				Map<String, ArrayList<Object[]>> evidenceSentences = new LinkedHashMap<String, ArrayList<Object[]>>();
+				for(int w = 0; w < wikiCount; w++) {
+					String wikiName = readString(in);
+					int sentenceCount = in.readInt();
+					ArrayList<Object[]> wikiSents = new ArrayList<Object[]>(sentenceCount);
+					for(int s = 0; s < sentenceCount; s++) {
+						Object[] evidence = new Object[2];
+						evidence[0] = in.readInt();
+						evidence[1] = readString(in);
+						wikiSents.add(evidence);
+					}
+					evidenceSentences.put(wikiName, wikiSents);
+				}
+				cache.insert(key, created, evidenceSentences);
+			}
+		} catch (IOException e) {
+			System.out.println("Could not read claim result cache " + fileName);
+			e.printStackTrace();
+		}
+		return cache;
+	}
+
+	public synchronized void save(String fileName) {
+		File tmpFile = new File(fileName + ".tmp");
+		long now = System.currentTimeMillis();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 20))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, fingerprint);
+			int count = 0;
+			for(Object[] result : results.values()) {
+				if(!isExpired((Long) result[0], now)) {
+					count++;
+				}
+			}
+			out.writeInt(count);
+			// eldest first, so loading replays the same recency order
+			for(Map.Entry<String, Object[]> result : results.entrySet()) {
+				if(isExpired((Long) result.getValue()[0], now)) {
+					continue;
+				}
+				writeString(out, result.getKey());
+				out.writeLong((Long) result.getValue()[0]);
+				Map<String, ArrayList<Object[]>> evidenceSentences = getEvidence(result.getValue());
+				out.writeInt(evidenceSentences.size());
+				for(Map.Entry<String, ArrayList<Object[]>> wikiSents : evidenceSentences.entrySet()) {
+					writeString(out, wikiSents.getKey());
+					out.writeInt(wikiSents.getValue().size());
+					for(Object[] evidence : wikiSents.getValue()) {
+						out.writeInt((Integer) evidence[0]);
+						writeString(out, (String) evidence[1]);
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Could not write claim result cache " + fileName);
+			e.printStackTrace();
+			return;
+		}
+		File cacheFile = new File(fileName);
+		if(cacheFile.exists()) {
+			cacheFile.delete();
+		}
+		if(!tmpFile.renameTo(cacheFile)) {
+			System.out.println("Could not write claim result cache " + fileName);
+		}
+	}
+
+	// the cached evidence map for the claim, which callers must not modify, or null
+	public synchronized Map<String, ArrayList<Object[]>> get(String claim) {
+		String key = toKey(claim);
+		Object[] result = results.get(key);
+		if(result != null && isExpired((Long) result[0], System.currentTimeMillis())) {
+			results.remove(key);
+			currentBytes -= estimateBytes(key, getEvidence(result));
+			evictions++;
+			result = null;
+		}
+		if(result == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return getEvidence(result);
+	}
+
+	public synchronized void put(String claim, Map<String, ArrayList<Object[]>> evidenceSentences) {
+		Map<String, ArrayList<Object[]>> copy = new LinkedHashMap<String, ArrayList<Object[]>>();
+		for(Map.Entry<String, ArrayList<Object[]>> wikiSents : evidenceSentences.entrySet()) {
+			copy.put(wikiSents.getKey(), new ArrayList<Object[]>(wikiSents.getValue()));
+		}
+		insert(toKey(claim), System.currentTimeMillis(), copy);
+	}
+
+	public synchronized String getStats() {
+		return "Claim result cache: " + results.size() + " claims, " + (currentBytes >> 10) + "KB, " + hits + " hits, "
+				+ misses + " misses, " + evictions + " evictions";
+	}
+
+	public static String fingerprint(String config) {
+		try {
+			StringBuilder hex = new StringBuilder();
+			for(byte b : MessageDigest.getInstance("SHA-256").digest(config.getBytes(StandardCharsets.UTF_8))) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			return config;
+		}
+	}
+
+	private void insert(String key, long created, Map<String, ArrayList<Object[]>> evidenceSentences) {
+		long size = estimateBytes(key, evidenceSentences);
+		if(size > maxBytes || isExpired(created, System.currentTimeMillis())) {
+			return;
+		}
+		Object[] result = {created, evidenceSentences};
+		Object[] previous = results.put(key, result);
+		if(previous != null) {
+			currentBytes -= estimateBytes(key, getEvidence(previous));
+		}
+		currentBytes += size;
+		Iterator<Map.Entry<String, Object[]>> eldest = results.entrySet().iterator();
+		while(currentBytes > maxBytes && eldest.hasNext()) {
+			Map.Entry<String, Object[]> evicted = eldest.next();
+			currentBytes -= estimateBytes(evicted.getKey(), getEvidence(evicted.getValue()));
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	private boolean isExpired(long created, long now) {
+		return now - created > ttlMillis;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, ArrayList<Object[]>> getEvidence(Object[] result) {
+		return (Map<String, ArrayList<Object[]>>) result[1];
+	}
+
+	private static String toKey(String claim) {
+		return Normalizer.normalize(claim, Normalizer.Form.NFC).trim().replaceAll("\\s+", " ");
+	}
+
+	// rough heap size: two bytes a char plus fixed overhead per string, list and entry
+	private static long estimateBytes(String key, Map<String, ArrayList<Object[]>> evidenceSentences) {
+		long size = 64 + 2L * key.length();
+		for(Map.Entry<String, ArrayList<Object[]>> wikiSents : evidenceSentences.entrySet()) {
+			size += 96 + 2L * wikiSents.getKey().length();
+			for(Object[] evidence : wikiSents.getValue()) {
+				size += 80 + 2L * ((String) evidence[1]).length();
+			}
+		}
+		return size;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if(length < 0) {
+			throw new EOFException("Bad string length " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
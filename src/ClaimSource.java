@@ -0,0 +1,439 @@
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONException;
+
+/*
+ * Streams a claims (or results) JSONL file through one large buffer and parses each line in
+ * place, pulling out only id, claim, label and evidence. Other keys are skipped without
+ * building anything, and strings are only decoded for the fields that are kept. Strings come
+ * back NFC normalized, as every reader used to normalize them. Like Scanner.hasNext(),
+ * hasNext() is false once only whitespace is left; a blank or malformed line in between
+ * makes next() throw a JSONException for that line.
+ */
+public class ClaimSource implements Closeable {
+
+	private final FileChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+	private boolean endOfFile = false;
+
+	public ClaimSource(String fileName) throws IOException {
+		channel = new FileInputStream(fileName).getChannel();
+		buffer.flip();
+	}
+
+	public boolean hasNext() throws IOException {
+		int i = buffer.position();
+		while(true) {
+			for(; i < buffer.limit(); i++) {
+				if(!isWhitespace(buffer.get(i))) {
+					return true;
+				}
+			}
+			int consumed = buffer.position();
+			if(!fill()) {
+				return false;
+			}
+			i -= consumed;
+		}
+	}
+
+	public Claim next() throws IOException {
+		int end = buffer.position();
+		while(true) {
+			for(; end < buffer.limit(); end++) {
+				if(buffer.get(end) == '\n') {
+					break;
+				}
+			}
+			if(end < buffer.limit()) {
+				break;
+			}
+			int consumed = buffer.position();
+			if(!fill()) {
+				break;
+			}
+			end -= consumed;
+		}
+		int start = buffer.position();
+		buffer.position(Math.min(end + 1, buffer.limit()));
+		return new Parser(buffer.array(), start, end).parseClaim();
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	public static Claim parse(String line) {
+		byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+		return new Parser(bytes, 0, bytes.length).parseClaim();
+	}
+
+	// moves unread bytes to the front and reads more, doubling the buffer when a line fills it
+	private boolean fill() throws IOException {
+		if(endOfFile) {
+			return false;
+		}
+		if(buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+			ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+			larger.put(buffer);
+			buffer = larger;
+		} else {
+			buffer.compact();
+		}
+		int read = 0;
+		while(buffer.hasRemaining() && (read = channel.read(buffer)) > 0) {
+		}
+		if(read < 0) {
+			endOfFile = true;
+		}
+		buffer.flip();
+		return true;
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+	}
+
+	public static class Claim {
+		private final Integer id;
+		private final String claim;
+		private final String label;
+		private final List<List<Object[]>> evidence;
+
+		private Claim(Integer id, String claim, String label, List<List<Object[]>> evidence) {
+			this.id = id;
+			this.claim = claim;
+			this.label = label;
+			this.evidence = evidence;
+		}
+
+		public int getId() {
+			if(id == null) {
+				throw new JSONException("Claim has no id");
+			}
+			return id;
+		}
+
+		public String getClaim() {
+			if(claim == null) {
+				throw new JSONException("Claim has no claim text");
+			}
+			return claim;
+		}
+
+		public String getLabel() {
+			if(label == null) {
+				throw new JSONException("Claim has no label");
+			}
+			return label;
+		}
+
+		// evidence sets, each a list of evidence entries with null for JSON null
+		public List<List<Object[]>> getEvidence() {
+			if(evidence == null) {
+				throw new JSONException("Claim has no evidence");
+			}
+			return evidence;
+		}
+	}
+
+	/*
+	 * Recursive descent over one line's bytes. Values of unused keys are walked with skipValue,
+	 * which allocates nothing.
+	 */
+	private static class Parser {
+		private final byte[] bytes;
+		private final int end;
+		private int pos;
+
+		Parser(byte[] bytes, int start, int end) {
+			this.bytes = bytes;
+			this.pos = start;
+			this.end = end;
+		}
+
+		Claim parseClaim() {
+			Integer id = null;
+			String claim = null;
+			String label = null;
+			List<List<Object[]>> evidence = null;
+			expect('{');
+			if(peek() != '}') {
+				do {
+					peek();
+					int keyStart = pos + 1;
+					skipString();
+					int keyEnd = pos - 1;
+					expect(':');
+					if(keyEquals(keyStart, keyEnd, "id")) {
+						Object value = parseValue();
+						if(!(value instanceof Integer)) {
+							throw error("id is not an int");
+						}
+						id = (Integer) value;
+					} else if(keyEquals(keyStart, keyEnd, "claim")) {
+						claim = parseString();
+					} else if(keyEquals(keyStart, keyEnd, "label")) {
+						label = parseString();
+					} else if(keyEquals(keyStart, keyEnd, "evidence")) {
+						evidence = parseEvidence();
+					} else {
+						skipValue();
+					}
+				} while(consume(','));
+			}
+			expect('}');
+			if(peek() != -1) {
+				throw error("Unexpected content after claim");
+			}
+			return new Claim(id, claim, label, evidence);
+		}
+
+		private List<List<Object[]>> parseEvidence() {
+			List<List<Object[]>> evidence = new ArrayList<List<Object[]>>();
+			for(Object set : parseArray()) {
+				if(!(set instanceof List)) {
+					throw error("Evidence set is not an array");
+				}
+				List<Object[]> entries = new ArrayList<Object[]>();
+				for(Object entry : (List<?>) set) {
+					if(!(entry instanceof List)) {
+						throw error("Evidence entry is not an array");
+					}
+					entries.add(((List<?>) entry).toArray());
+				}
+				evidence.add(entries);
+			}
+			return evidence;
+		}
+
+		private Object parseValue() {
+			int c = peek();
+			if(c == '"') {
+				return parseString();
+			} else if(c == '[') {
+				return parseArray();
+			} else if(c == '{') {
+				skipValue();
+				return Collections.emptyMap();
+			} else if(c == 'n') {
+				expectWord("null");
+				return null;
+			} else if(c == 't') {
+				expectWord("true");
+				return Boolean.TRUE;
+			} else if(c == 'f') {
+				expectWord("false");
+				return Boolean.FALSE;
+			}
+			return parseNumber();
+		}
+
+		private List<Object> parseArray() {
+			expect('[');
+			List<Object> values = new ArrayList<Object>();
+			if(peek() != ']') {
+				do {
+					values.add(parseValue());
+				} while(consume(','));
+			}
+			expect(']');
+			return values;
+		}
+
+		private Object parseNumber() {
+			int start = pos;
+			boolean integral = true;
+			while(pos < end && "+-0123456789.eE".indexOf(bytes[pos]) >= 0) {
+				if(bytes[pos] == '.' || bytes[pos] == 'e' || bytes[pos] == 'E') {
+					integral = false;
+				}
+				pos++;
+			}
+			if(start == pos) {
+				throw error("Unexpected character");
+			}
+			String number = new String(bytes, start, pos - start, StandardCharsets.US_ASCII);
+			try {
+				if(integral) {
+					long value = Long.parseLong(number);
+					if(value == (int) value) {
+						return (int) value;
+					}
+					return value;
+				}
+				return Double.parseDouble(number);
+			} catch (NumberFormatException e) {
+				throw error("Bad number " + number);
+			}
+		}
+
+		private String parseString() {
+			expect('"');
+			int start = pos;
+			while(pos < end && bytes[pos] != '"' && bytes[pos] != '\\') {
+				pos++;
+			}
+			if(pos < end && bytes[pos] == '"') {
+				pos++;
+				return Normalizer.normalize(new String(bytes, start, pos - 1 - start, StandardCharsets.UTF_8), Normalizer.Form.NFC);
+			}
+			// escaped string: copy the unescaped prefix, then decode the rest by hand
+			StringBuilder value = new StringBuilder(new String(bytes, start, pos - start, StandardCharsets.UTF_8));
+			int runStart = pos;
+			while(true) {
+				if(pos >= end) {
+					throw error("Unterminated string");
+				}
+				byte b = bytes[pos];
+				if(b == '"') {
+					value.append(new String(bytes, runStart, pos - runStart, StandardCharsets.UTF_8));
+					pos++;
+					return Normalizer.normalize(value.toString(), Normalizer.Form.NFC);
+				}
+				if(b != '\\') {
+					pos++;
+					continue;
+				}
+				value.append(new String(bytes, runStart, pos - runStart, StandardCharsets.UTF_8));
+				if(pos + 1 >= end) {
+					throw error("Unterminated escape");
+				}
+				byte escaped = bytes[pos + 1];
+				pos += 2;
+				switch(escaped) {
+				case '"':
+				case '\\':
+				case '/':
+					value.append((char) escaped);
+					break;
+				case 'b':
+					value.append('\b');
+					break;
+				case 'f':
+					value.append('\f');
+					break;
+				case 'n':
+					value.append('\n');
+					break;
+				case 'r':
+					value.append('\r');
+					break;
+				case 't':
+					value.append('\t');
+					break;
+				case 'u':
+					if(pos + 4 > end) {
+						throw error("Bad unicode escape");
+					}
+					try {
+						value.append((char) Integer.parseInt(new String(bytes, pos, 4, StandardCharsets.US_ASCII), 16));
+					} catch (NumberFormatException e) {
+						throw error("Bad unicode escape");
+					}
+					pos += 4;
+					break;
+				default:
+					throw error("Bad escape");
+				}
+				runStart = pos;
+			}
+		}
+
+		private void skipString() {
+			expect('"');
+			while(pos < end && bytes[pos] != '"') {
+				pos += bytes[pos] == '\\' ? 2 : 1;
+			}
+			if(pos >= end) {
+				throw error("Unterminated string");
+			}
+			pos++;
+		}
+
+		private void skipValue() {
+			int c = peek();
+			if(c == '"') {
+				skipString();
+			} else if(c == '[' || c == '{') {
+				char close = c == '[' ? ']' : '}';
+				pos++;
+				if(peek() != close) {
+					do {
+						if(close == '}') {
+							skipString();
+							expect(':');
+						}
+						skipValue();
+					} while(consume(','));
+				}
+				expect(close);
+			} else if(c == 'n') {
+				expectWord("null");
+			} else if(c == 't') {
+				expectWord("true");
+			} else if(c == 'f') {
+				expectWord("false");
+			} else {
+				parseNumber();
+			}
+		}
+
+		private boolean keyEquals(int start, int keyEnd, String key) {
+			if(keyEnd - start != key.length()) {
+				return false;
+			}
+			for(int i = 0; i < key.length(); i++) {
+				if(bytes[start + i] != key.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		// next non-whitespace byte without consuming it, -1 at the end of the line
+		private int peek() {
+			while(pos < end && isWhitespace(bytes[pos])) {
+				pos++;
+			}
+			return pos < end ? bytes[pos] : -1;
+		}
+
+		private boolean consume(char c) {
+			if(peek() == c) {
+				pos++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(char c) {
+			if(!consume(c)) {
+				throw error("Expected '" + c + "'");
+			}
+		}
+
+		private void expectWord(String word) {
+			for(int i = 0; i < word.length(); i++) {
+				if(pos >= end || bytes[pos] != word.charAt(i)) {
+					throw error("Expected " + word);
+				}
+				pos++;
+			}
+		}
+
+		private JSONException error(String message) {
+			return new JSONException(message + " at byte " + pos);
+		}
+	}
+
+}
@@ -1,16 +1,8 @@
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.text.Normalizer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -21,14 +13,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import edu.mit.jwi.Dictionary;
 import edu.mit.jwi.IDictionary;
@@ -54,15 +43,19 @@ public class DocFinder {
 	static String claimsFileName = "shared_task_dev_public.jsonl";
 	static String outputFileName = "found_documents.jsonl";
 	static String wikiDirName = "wiki-dump";
+	static String wikiIndexFileName = "wikiIndex.bin";
 
 	static int numClaimsToTest = 10;
 	static int claimBatchSize = 100;
 	static boolean testAll = false;
+	static boolean resume = false;
+	static TopicMode topicMode = TopicMode.PARSE;
 
 	
-	static Map<String, Map<String, Object>> wikiMap;
-	static Map<String, ArrayList<String>> disambiguationMap;
-	static Map<String, String> lowercaseMap;
+	static WikiIndex wikiIndex;
+	static DocumentStore documentStore;
+	static DocumentCache documentCache;
+	static long documentCacheBytes = 512L << 20;
 
     static IDictionary synonymDict;
 
@@ -73,28 +66,34 @@ public class DocFinder {
 		
 		StanfordCoreNLP pipeline = establishPipeline();
 	    System.out.println("CoreNLP pipeline established. Time: "+dtf.format(LocalDateTime.now()));	    
-	    getWikiMaps(wikiDirName);
-		System.out.println("wikiMaps compiled. Time: "+dtf.format(LocalDateTime.now()));
+	    try {
+	    	wikiIndex = WikiIndex.load(wikiDirName, wikiIndexFileName);
+	    } catch (IOException e) {
+	    	System.out.println("Could not load wiki index "+wikiIndexFileName);
+	    	e.printStackTrace();
+	    	return;
+	    }
+		System.out.println("wikiIndex loaded. Time: "+dtf.format(LocalDateTime.now()));
+		documentStore = new DocumentStore(wikiDirName, wikiIndex.getFileNames());
+		documentCache = new DocumentCache(documentCacheBytes);
 		getSynDict();
 		
 
 		int claimCount =0;
 		try {
-			Scanner claimReader = new Scanner(new FileReader(claimsFileName));
-			File oldFile = new File(outputFileName);
-			if(oldFile.exists()) {
-				oldFile.delete();
-			}
-			BufferedWriter writer = new BufferedWriter(new FileWriter(outputFileName, true));
+			ClaimSource claimReader = new ClaimSource(claimsFileName);
+			ResultLog log = ResultLog.open(outputFileName, resume);
+			claimCount = log.skipCommitted(claimReader);
+			EvidenceLineWriter lineWriter = new EvidenceLineWriter();
 			
 			
 			while(claimReader.hasNext() && (testAll || claimCount < numClaimsToTest)) {
 				claimCount++;
+				ClaimSource.Claim claimInfo = null;
 				try {
-					String claimInfo = claimReader.nextLine();
-					JSONObject claimJson = new JSONObject(claimInfo);
-					String claim = Normalizer.normalize(claimJson.getString("claim"), Normalizer.Form.NFC);   
-					int id = claimJson.getInt("id");
+					claimInfo = claimReader.next();
+					String claim = claimInfo.getClaim();
+					int id = claimInfo.getId();
 					System.out.println("Claim " + claimCount + ": " +claim + " Time: " + dtf.format(LocalDateTime.now()));
 					
 					CoreDocument document = new CoreDocument(claim);
@@ -104,28 +103,26 @@ public class DocFinder {
 					SemanticGraph dependencyGraph = claimDoc.dependencyParse();
 					String formattedClaim = formatSentence(claim);
 					ArrayList<String[]> claimNE = getNamedEntities(formattedClaim, pipeline);
-					Map<String, Object> documents = findDocuments(claim, dependencyGraph, constituencyTree, claimNE);
-					ArrayList<Map<String, String>> primaryDocuments = (ArrayList<Map<String, String>>) documents.get("primary");
+					Map<String, Object> documents = findDocuments(claim, claimDoc.tokens(), dependencyGraph, constituencyTree, claimNE);
+					ArrayList<WikiDocument> primaryDocuments = (ArrayList<WikiDocument>) documents.get("primary");
 					ArrayList<String> backupDocumentKeys = (ArrayList<String>) documents.get("backup");
 					
 					Map<String, ArrayList<Object[]>> evidenceSentences = dummySentences(primaryDocuments, getBackupDocs(backupDocumentKeys));
 				    
-				    String JSONStr = evidenceToLine(id, claim, evidenceSentences);
-				    writer.append(JSONStr);
-				    writer.append("\n");
+				    log.append(claimInfo, lineWriter.format(id, claim, evidenceSentences));
 				}catch(Exception e){
 					e.printStackTrace();
 					System.out.println("Something went wrong with processeing claim " + claimCount + ". Skipping");
-				    writer.append("\n");
+				    log.append(claimInfo, "");
 				}
 				if(claimCount % claimBatchSize == 0) {
-					writer.close();
-					writer = new BufferedWriter(new FileWriter(outputFileName, true));
+					log.commit();
 				}
 			    
 			}
 			claimReader.close();
-			writer.close();
+			log.close();
+			System.out.println(documentCache.getStats());
 		}catch(Exception e) {
 			e.printStackTrace();
 		}
@@ -135,7 +132,12 @@ public class DocFinder {
 	
 	private static StanfordCoreNLP establishPipeline() {
 		Properties props = new Properties();
-		props.setProperty("annotators", "tokenize, ssplit, pos, parse, depparse, lemma, ner");
+		if(topicMode == TopicMode.SPOT) {
+			// spotted topics only need tokens and entities, so skip both parsers
+			props.setProperty("annotators", "tokenize, ssplit, pos, lemma, ner");
+		} else {
+			props.setProperty("annotators", "tokenize, ssplit, pos, parse, depparse, lemma, ner");
+		}
 	    props.setProperty("coref.algorithm", "neural");
 	    props.put("ner.model", "english.conll.4class.distsim.crf.ser.gz");
 	    StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
@@ -155,11 +157,17 @@ public class DocFinder {
 	}
 	
 	
-	private static Map<String, Object> findDocuments(String claim, SemanticGraph dependencyGraph, Tree constituencyTree, ArrayList<String[]> namedEntities){
-		ArrayList<String> claimTopics = getAllTopics(claim, dependencyGraph, constituencyTree, namedEntities);
+	private static Map<String, Object> findDocuments(String claim, List<CoreLabel> tokens, SemanticGraph dependencyGraph, Tree constituencyTree, ArrayList<String[]> namedEntities){
+		ArrayList<String> claimTopics = new ArrayList<String>();
+		if(topicMode != TopicMode.SPOT) {
+			claimTopics.addAll(getAllTopics(claim, dependencyGraph, constituencyTree, namedEntities));
+		}
+		if(topicMode != TopicMode.PARSE) {
+			claimTopics.addAll(getSpottedTopics(claim, tokens));
+		}
 		claimTopics = (ArrayList<String>) claimTopics.stream().map(topic -> StringUtils.capitalize(topic)).distinct().collect(Collectors.toList());
 		claimTopics = removeSubsets(claimTopics);
-		ArrayList<Map<String, String>> primaryDocs = getDocsFromTopics(claimTopics);
+		ArrayList<WikiDocument> primaryDocs = getDocsFromTopics(claimTopics);
 		ArrayList<String> backupDocs = getBackupDocKeys(claimTopics, primaryDocs);
 		Map<String, Object> allDocs = new HashMap<String, Object>();
 		allDocs.put("primary", primaryDocs);
@@ -167,10 +175,10 @@ public class DocFinder {
 		return allDocs;
 	}
 	
-	private static Map<String, ArrayList<Object[]>> dummySentences(ArrayList<Map<String, String>> primary, ArrayList<Map<String, String>> backup){
+	private static Map<String, ArrayList<Object[]>> dummySentences(ArrayList<WikiDocument> primary, ArrayList<WikiDocument> backup){
 		Map<String, ArrayList<Object[]>> dummySentences = new HashMap<String, ArrayList<Object[]>>();
-		for(Map<String, String> wiki : primary) {
-			String wikiName = Normalizer.normalize(wiki.get("id"), Normalizer.Form.NFC);
+		for(WikiDocument wiki : primary) {
+			String wikiName = Normalizer.normalize(wiki.getId(), Normalizer.Form.NFC);
 			ArrayList<Object[]> dummySents = new ArrayList<Object[]>();
 			Object[] dummyEvidence = new Object[2];
 			dummyEvidence[0] = 0;
@@ -178,8 +186,8 @@ public class DocFinder {
 			dummySents.add(dummyEvidence);
 			dummySentences.put(wikiName, dummySents);
 		}
-		for(Map<String, String> wiki : backup) {
-			String wikiName = Normalizer.normalize(wiki.get("id"), Normalizer.Form.NFC);
+		for(WikiDocument wiki : backup) {
+			String wikiName = Normalizer.normalize(wiki.getId(), Normalizer.Form.NFC);
 			ArrayList<Object[]> dummySents = new ArrayList<Object[]>();
 			Object[] dummyEvidence = new Object[2];
 			dummyEvidence[0] = 1;
@@ -193,25 +201,6 @@ public class DocFinder {
 	
 
 	
-	private static String evidenceToLine(int id, String claim, Map<String, ArrayList<Object[]>> evidenceSentences) {
-		ArrayList<JSONArray> evidenceSentencesJSON = new ArrayList<JSONArray>();
-		for(String wiki: evidenceSentences.keySet()) {
-			ArrayList<Object[]> evidenceSets = evidenceSentences.get(wiki);
-			for(Object[] evidenceSet : evidenceSets) {
-				Object[] evidenceArr = {wiki, evidenceSet[0], evidenceSet[1]};
-				ArrayList<JSONArray> evidenceSetJSON = new ArrayList<JSONArray>();
-				evidenceSetJSON.add(new JSONArray(Arrays.asList(evidenceArr)));
-				evidenceSentencesJSON.add(new JSONArray(evidenceSetJSON));
-			}
-		}
-		JSONArray evidence = new JSONArray(evidenceSentencesJSON);
-		Map<String, Object> evidenceMap = new HashMap<String, Object>();
-		evidenceMap.put("id", id);
-		evidenceMap.put("claim", claim);
-		evidenceMap.put("evidence", evidence);
-		return new JSONObject(evidenceMap).toString();
-	}
-	
 	private static ArrayList<String> getProperTerms(String sentence, ArrayList<String[]> namedEntities){
 		String[] lowerWords = {"a", "an", "the", "at", "by", "down", "for", "from", "in", "into", "like", "near", "of", "off", "on", "onto", "onto", "over", 
 				"past", "to", "upon", "with", "and", "&", "as", "but", "for", "if", "nor", "once", "or", "so", "than", "that", "till", "when", "yet"};
@@ -333,6 +322,20 @@ public class DocFinder {
 		return topicPhrases;
 	}
 	
+	private static ArrayList<String> getSpottedTopics(String claim, List<CoreLabel> tokens) {
+		int[] begins = new int[tokens.size()];
+		int[] ends = new int[tokens.size()];
+		for(int i = 0; i < tokens.size(); i++) {
+			begins[i] = tokens.get(i).beginPosition();
+			ends[i] = tokens.get(i).endPosition();
+		}
+		List<String> dets = Arrays.asList("A", "An", "The", "There");
+		return (ArrayList<String>) wikiIndex.getTitleDictionary().spot(claim, begins, ends).stream()
+				.map(phrase -> StringUtils.capitalize(phrase)).map(phrase -> removeEndPunct(phrase)).distinct()
+				.filter(phrase -> !isInt(phrase)).filter(phrase -> !dets.contains(phrase))
+				.collect(Collectors.toList());
+	}
+	
 	private static Set<IndexedWord> getDescendentsWithReln(SemanticGraph dependencyTree, IndexedWord vertex, GrammaticalRelation reln, int layer) {
 		Set<IndexedWord> descendents = dependencyTree.getChildrenWithReln(vertex, reln);
 		Set<IndexedWord> children = dependencyTree.getChildren(vertex);
@@ -489,20 +492,13 @@ public class DocFinder {
 	}
 	
 	private static boolean isValidWiki(String title) {
-		boolean valid = false;
-		String wikiKey = title.replace(" ", "_").replace("(", "-LRB-").replace(")", "-RRB-").replace("]", "-RSB-").replace("[", "-LSB-");
-		wikiKey = StringUtils.capitalize(wikiKey);
-		if(wikiMap.containsKey(wikiKey) || disambiguationMap.containsKey(wikiKey) || lowercaseMap.containsKey(wikiKey.toLowerCase())) {
-			valid = true;
-	    }
-		return valid;
+		return wikiIndex.resolveTitle(title) != null;
 	}
 	
 	private static String formatWiki(String title) {
-		String wikiKey = title.replace(" ", "_").replace("(", "-LRB-").replace(")", "-RRB-").replace("]", "-RSB-").replace("[", "-LSB-");
-		wikiKey = StringUtils.capitalize(wikiKey);
-		if(!wikiMap.containsKey(wikiKey) && !disambiguationMap.containsKey(wikiKey) && lowercaseMap.containsKey(wikiKey.toLowerCase())) {
-			wikiKey = lowercaseMap.get(wikiKey.toLowerCase());
+		String wikiKey = wikiIndex.resolveTitle(title);
+		if(wikiKey == null) {
+			wikiKey = TitleDictionary.toWikiKey(title);
 		}
 		return wikiKey;
 	}
@@ -582,59 +578,51 @@ public class DocFinder {
 	    return tokens;
 	}
 	
-	private static ArrayList<Map<String, String>> getDocsFromTopics(ArrayList<String> possibleTopics) {
-		ArrayList<Map<String, String>> wikiDocs = new ArrayList<Map<String, String>>();
+	private static WikiDocument fetchDocument(String key, int entry) throws IOException, JSONException {
+		WikiDocument wikiDoc = documentCache.get(key);
+		if(wikiDoc == null) {
+			wikiDoc = WikiDocument.fromJson(documentStore.read(wikiIndex.getFileId(entry), wikiIndex.getOffset(entry)));
+			documentCache.put(key, wikiDoc);
+		}
+		return wikiDoc;
+	}
+	
+	private static ArrayList<WikiDocument> getDocsFromTopics(ArrayList<String> possibleTopics) {
+		ArrayList<WikiDocument> wikiDocs = new ArrayList<WikiDocument>();
 		for(String topic: possibleTopics) {
 			String urlTitle = formatWiki(topic);
-			Map<String, String> wikiDoc = new HashMap<String, String>();
 			boolean emptyDisam = false;
-			if (!topic.isEmpty() && wikiMap.containsKey(urlTitle)){
-				Map<String, Object> fileInfo = wikiMap.get(urlTitle);
-				Path wikiDirPath = Paths.get(wikiDirName);
-				Path wikiListPath =  wikiDirPath.resolve(Paths.get((String)fileInfo.get("fileName")));
-				String wikiListName = wikiListPath.toString();
-
+			int entry = wikiIndex.find(urlTitle);
+			if (!topic.isEmpty() && entry >= 0){
 				try {
-					BufferedReader reader = new BufferedReader(new FileReader(wikiListName));
-					Long byteOffset = (Long) fileInfo.get("offset");
-					reader.skip(byteOffset);
-				    String wikiEntry = reader.readLine();
-				    JSONObject wikiJson = new JSONObject(wikiEntry);
-				    if (wikiJson.getString("text").toLowerCase().contains((topic.toLowerCase()+" may refer to : ")) ||
-				    		wikiJson.getString("text").toLowerCase().contains((topic.toLowerCase()+" may also refer to : "))) {
-			    		ArrayList<Map<String, String>> disambiguationChildren = findDisambiguationChildren(wikiJson);
+				    WikiDocument wikiDoc = fetchDocument(urlTitle, entry);
+				    if (wikiDoc.getText().toLowerCase().contains((topic.toLowerCase()+" may refer to : ")) ||
+				    		wikiDoc.getText().toLowerCase().contains((topic.toLowerCase()+" may also refer to : "))) {
+			    		ArrayList<WikiDocument> disambiguationChildren = findDisambiguationChildren(wikiDoc);
 			    		wikiDocs.addAll(disambiguationChildren);
 			    		if(disambiguationChildren.isEmpty()) {
 			    			emptyDisam = true;
 			    		}
 			    	}
 				    else {
-					    wikiDoc.put("id", wikiJson.getString("id"));
-					    wikiDoc.put("text", wikiJson.getString("text"));
-					    wikiDoc.put("lines", wikiJson.getString("lines"));
 					    wikiDocs.add(wikiDoc);
 				    }
-				    reader.close();
-				}
-				
-				catch (FileNotFoundException e) {
-					System.out.println("Could not open file  "+fileInfo.get("fileName"));
-					e.printStackTrace();
 				} catch (JSONException e) {
 					e.printStackTrace();
 				} catch (IOException e) {
+					System.out.println("Could not read file  "+wikiIndex.getFileName(entry));
 					e.printStackTrace();
 				}
 				
 			}
 			
-			if (!topic.isEmpty() && disambiguationMap.containsKey(urlTitle)){
+			if (!topic.isEmpty() && wikiIndex.containsDisambiguation(urlTitle)){
 				if(emptyDisam) {
-					ArrayList<String> disambiguations = disambiguationMap.get(urlTitle);
+					ArrayList<String> disambiguations = wikiIndex.getDisambiguationChildren(urlTitle);
 					ArrayList<String> unchecked = new ArrayList<String>(disambiguations);
-					for(Map<String, String> wiki: wikiDocs) {
-						if(disambiguations.contains(wiki.get("id"))) {
-							unchecked.remove(wiki.get("id"));
+					for(WikiDocument wiki: wikiDocs) {
+						if(disambiguations.contains(wiki.getId())) {
+							unchecked.remove(wiki.getId());
 						}
 					}
 					wikiDocs.addAll(getDocsFromTopics(unchecked));
@@ -644,47 +632,34 @@ public class DocFinder {
 		return wikiDocs;
 	}
 	
-	private static ArrayList<Map<String, String>> getBackupDocs(ArrayList<String> backupDocumentKeys){
-		ArrayList<Map<String, String>> backupDocs = new ArrayList<Map<String, String>>();
+	private static ArrayList<WikiDocument> getBackupDocs(ArrayList<String> backupDocumentKeys){
+		ArrayList<WikiDocument> backupDocs = new ArrayList<WikiDocument>();
 		for(String key : backupDocumentKeys) {
 			try {
-				Map<String, String> backupDoc = new HashMap<String, String>();
-				Map<String, Object> fileInfo = wikiMap.get(key);
-                Path wikiDirPath = Paths.get(wikiDirName);
-                Path wikiListPath =  wikiDirPath.resolve(Paths.get((String)fileInfo.get("fileName")));
-                String wikiListName = wikiListPath.toString();
-
-				BufferedReader reader = new BufferedReader(new FileReader(wikiListName));
-				Long byteOffset = (Long) fileInfo.get("offset");
-				reader.skip(byteOffset);
-			    String wikiEntry = reader.readLine();
-			    JSONObject wikiJson = new JSONObject(wikiEntry);
-			    backupDoc.put("id", wikiJson.getString("id"));
-			    backupDoc.put("text", wikiJson.getString("text"));
-			    backupDoc.put("lines", wikiJson.getString("lines"));
-			    backupDocs.add(backupDoc);
-			    reader.close();
-			} catch (FileNotFoundException e) {
-				System.out.println("Could not open file  "+ key);
-				e.printStackTrace();
+				int entry = wikiIndex.find(key);
+				if(entry < 0) {
+					continue;
+				}
+			    backupDocs.add(fetchDocument(key, entry));
 			} catch (JSONException e) {
 				e.printStackTrace();
 			} catch (IOException e) {
+				System.out.println("Could not read file  "+ key);
 				e.printStackTrace();
 			}
 		}
 		return backupDocs;
 	}
 	
-	private static ArrayList<String> getBackupDocKeys(ArrayList<String> possibleTopics, ArrayList<Map<String, String>> existingDocs) {
+	private static ArrayList<String> getBackupDocKeys(ArrayList<String> possibleTopics, ArrayList<WikiDocument> existingDocs) {
 		ArrayList<String> backupDocs = new ArrayList<String>();
 		for(String topic: possibleTopics) {
 			String urlTitle = StringUtils.capitalize(topic.replace(' ', '_').replace("(", "-LRB-").replace(")", "-RRB-"));
-			if (!topic.isEmpty() && disambiguationMap.containsKey(urlTitle)){
-				backupDocs.addAll(disambiguationMap.get(urlTitle));
-				for(Map<String, String> wiki: existingDocs) {
-					if(backupDocs.contains(wiki.get("id"))) {
-						backupDocs.remove(wiki.get("id"));
+			if (!topic.isEmpty() && wikiIndex.containsDisambiguation(urlTitle)){
+				backupDocs.addAll(wikiIndex.getDisambiguationChildren(urlTitle));
+				for(WikiDocument wiki: existingDocs) {
+					if(backupDocs.contains(wiki.getId())) {
+						backupDocs.remove(wiki.getId());
 					}
 				}
 			}
@@ -693,85 +668,18 @@ public class DocFinder {
 		return backupDocs;
 	}
 	
-	private static ArrayList<Map<String, String>> findDisambiguationChildren(JSONObject disambiguation){
-		ArrayList<Map<String, String>> disambiguationChildren = new ArrayList<Map<String, String>>();
-		try {
-			String lines = disambiguation.getString("lines");
-			String[] entries = lines.split("[\\n[\\d+]\\t]+");
-			ArrayList<String> topics = new ArrayList<String>();
-			for(int i = 1; i < entries.length; i++) {
-				String[] tabs = entries[i].split("\\t");
-				String wiki = tabs.length > 1 ? tabs[1] : null;
-				if(wiki != null && !wiki.replace(' ', '_').replace("(", "-LRB-").replace(")", "-RRB-").equals(disambiguation.getString("id"))) {
-					topics.add(wiki);
-				}
-			}
-			disambiguationChildren = getDocsFromTopics(topics);
-		} catch (JSONException e) {
-			e.printStackTrace();
-		}
-		
-		return disambiguationChildren;
-	}
-	
-	private static void getWikiMaps(String wikiDirName) {
-		wikiMap = new HashMap<String, Map <String, Object>>();
-		disambiguationMap = new HashMap<String, ArrayList<String>>();
-		lowercaseMap = new HashMap<String, String>();
-		
-		File wikiDir = new File(wikiDirName);
-		File[] wikiEntries = wikiDir.listFiles();
-		int filesProcessed = 0;
-		if (wikiEntries != null){
-			for (File wikiEntryList : wikiEntries) {
-				try {
-					System.out.print("*");
-					Scanner s = new Scanner(wikiEntryList);
-					long byteOffset = 0;
-					while(s.hasNextLine()) {
-						String wikiEntry = Normalizer.normalize(s.nextLine(), Normalizer.Form.NFC);
-					    JSONObject wikiJson = new JSONObject(wikiEntry);
-					    String id = wikiJson.getString("id");
-					    if(!id.isEmpty()) {
-					    	String fileName = wikiEntryList.getName();
-					    	Map<String, Object> docLocation = new HashMap<String, Object>();
-					    	docLocation.put("fileName", fileName);
-					    	docLocation.put("offset", byteOffset);
-							wikiMap.put(id, docLocation);
-							lowercaseMap.put(id.toLowerCase(), id);
-							
-							int paren = id.indexOf("-LRB-");
-							if(paren > 0 && !id.contains("disambiguation")) {
-								String base = id.substring(0, paren-1);
-								ArrayList<String> disambiguationChildren = new ArrayList<String>();
-								if(disambiguationMap.containsKey(base)) {
-									disambiguationChildren = disambiguationMap.get(base);
-									disambiguationChildren.add(id);
-									disambiguationMap.put(base, disambiguationChildren);
-								}
-								else {
-									disambiguationChildren.add(id);
-									disambiguationMap.put(base, disambiguationChildren);
-								}
-							}
-					    }
-					    byteOffset += wikiEntry.getBytes().length;
-						byteOffset += 1;
-					}
-					filesProcessed++;
-					if(filesProcessed % 10 == 0 || filesProcessed == 109) {
-						System.out.println("\nWiki processing "+filesProcessed+"/109 done.");
-					}
-						
-					s.close();
-				} catch (FileNotFoundException e) {
-					System.out.println("Could not open file  "+wikiEntryList.getName());
-					e.printStackTrace();
-				} catch (JSONException e) {
-					e.printStackTrace();
-				}
+	private static ArrayList<WikiDocument> findDisambiguationChildren(WikiDocument disambiguation){
+		String lines = disambiguation.getLines();
+		String[] entries = lines.split("[\\n[\\d+]\\t]+");
+		ArrayList<String> topics = new ArrayList<String>();
+		for(int i = 1; i < entries.length; i++) {
+			String[] tabs = entries[i].split("\\t");
+			String wiki = tabs.length > 1 ? tabs[1] : null;
+			if(wiki != null && !wiki.replace(' ', '_').replace("(", "-LRB-").replace(")", "-RRB-").equals(disambiguation.getId())) {
+				topics.add(wiki);
 			}
 		}
+		return getDocsFromTopics(topics);
 	}
 	
 }
@@ -0,0 +1,76 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Size-bounded LRU cache of parsed wiki documents keyed by page id. Popular pages (countries,
+ * films, people) are fetched and parsed once per run instead of once per claim that mentions them.
+ */
+public class DocumentCache {
+
+	private final long maxBytes;
+	private final LinkedHashMap<String, WikiDocument> documents;
+	private long currentBytes = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	public DocumentCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+		this.documents = new LinkedHashMap<String, WikiDocument>(1024, 0.75f, true);
+	}
+
+	public synchronized WikiDocument get(String id) {
+		WikiDocument document = documents.get(id);
+		if(document == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return document;
+	}
+
+	public synchronized void put(String id, WikiDocument document) {
+		long size = document.estimateBytes();
+		if(size > maxBytes) {
+			return;
+		}
+		WikiDocument previous = documents.put(id, document);
+		if(previous != null) {
+			currentBytes -= previous.estimateBytes();
+		}
+		currentBytes += size;
+		Iterator<Map.Entry<String, WikiDocument>> eldest = documents.entrySet().iterator();
+		while(currentBytes > maxBytes && eldest.hasNext()) {
+			currentBytes -= eldest.next().getValue().estimateBytes();
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	public synchronized int size() {
+		return documents.size();
+	}
+
+	public synchronized long getBytes() {
+		return currentBytes;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized String getStats() {
+		return "Document cache: " + documents.size() + " docs, " + (currentBytes >> 20) + "MB, " + hits + " hits, "
+				+ misses + " misses, " + evictions + " evictions";
+	}
+
+}
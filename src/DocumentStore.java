@@ -0,0 +1,81 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Random access to wiki-dump records by byte offset. One FileChannel is kept open per dump file
+ * and each record is fetched with a positional read, so a lookup costs the same wherever the
+ * page sits in its file. Positional reads do not move the channel position, so a single store
+ * can be shared by every claim thread.
+ */
+public class DocumentStore {
+
+	static final int INITIAL_READ_SIZE = 1 << 16;
+
+	private final String wikiDirName;
+	private final String[] fileNames;
+	private final FileChannel[] channels;
+
+	public DocumentStore(String wikiDirName, String[] fileNames) {
+		this.wikiDirName = wikiDirName;
+		this.fileNames = fileNames;
+		this.channels = new FileChannel[fileNames.length];
+	}
+
+	public String read(int fileId, long offset) throws IOException {
+		FileChannel channel = getChannel(fileId);
+		ByteBuffer buffer = ByteBuffer.allocate(INITIAL_READ_SIZE);
+		int scanned = 0;
+		while(true) {
+			int read = channel.read(buffer, offset + buffer.position());
+			int filled = buffer.position();
+			for(int i = scanned; i < filled; i++) {
+				if(buffer.get(i) == '\n') {
+					return decode(buffer, i);
+				}
+			}
+			if(read < 0) {
+				return decode(buffer, filled);
+			}
+			scanned = filled;
+			if(!buffer.hasRemaining()) {
+				ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+		}
+	}
+
+	public synchronized void close() {
+		for(int i = 0; i < channels.length; i++) {
+			if(channels[i] != null) {
+				try {
+					channels[i].close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				channels[i] = null;
+			}
+		}
+	}
+
+	private synchronized FileChannel getChannel(int fileId) throws IOException {
+		if(channels[fileId] == null) {
+			File wikiFile = new File(wikiDirName, fileNames[fileId]);
+			channels[fileId] = FileChannel.open(wikiFile.toPath(), StandardOpenOption.READ);
+		}
+		return channels[fileId];
+	}
+
+	private static String decode(ByteBuffer buffer, int end) {
+		if(end > 0 && buffer.get(end - 1) == '\r') {
+			end--;
+		}
+		return new String(buffer.array(), 0, end, StandardCharsets.UTF_8);
+	}
+
+}
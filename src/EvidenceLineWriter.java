@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+/*
+ * Formats one results line, {"id":..,"claim":..,"evidence":[[[wiki,line,sentence]],..]}, straight
+ * into a char buffer that is kept between claims, so writing a claim builds no JSON objects.
+ * Strings are escaped the same way JSONObject.quote escapes them. A writer is reused by one
+ * thread at a time.
+ */
+public class EvidenceLineWriter {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private char[] chars = new char[1024];
+	private int length = 0;
+
+	public EvidenceLineWriter format(int id, String claim, Map<String, ? extends List<Object[]>> evidenceSentences) {
+		length = 0;
+		append("{\"id\":");
+		append((long) id);
+		append(",\"claim\":");
+		appendString(claim);
+		append(",\"evidence\":[");
+		boolean first = true;
+		for(Map.Entry<String, ? extends List<Object[]>> wikiSentences : evidenceSentences.entrySet()) {
+			for(Object[] evidenceSet : wikiSentences.getValue()) {
+				if(!first) {
+					append(',');
+				}
+				first = false;
+				append("[[");
+				appendString(wikiSentences.getKey());
+				append(',');
+				appendValue(evidenceSet[0]);
+				append(',');
+				appendValue(evidenceSet[1]);
+				append("]]");
+			}
+		}
+		append("]}");
+		return this;
+	}
+
+	public void writeTo(Writer writer) throws IOException {
+		writer.write(chars, 0, length);
+	}
+
+	public String toString() {
+		return new String(chars, 0, length);
+	}
+
+	private void appendValue(Object value) {
+		if(value == null) {
+			append("null");
+		} else if(value instanceof String) {
+			appendString((String) value);
+		} else if(value instanceof Integer || value instanceof Long) {
+			append(((Number) value).longValue());
+		} else if(value instanceof Boolean) {
+			append(value.toString());
+		} else if(value instanceof Number) {
+			append(JSONObject.numberToString((Number) value));
+		} else {
+			appendString(value.toString());
+		}
+	}
+
+	private void appendString(String value) {
+		append('"');
+		char previous = 0;
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch(c) {
+			case '"':
+			case '\\':
+				append('\\');
+				append(c);
+				break;
+			case '/':
+				if(previous == '<') {
+					append('\\');
+				}
+				append(c);
+				break;
+			case '\b':
+				append("\\b");
+				break;
+			case '\t':
+				append("\\t");
+				break;
+			case '\n':
+				append("\\n");
+				break;
+			case '\f':
+				append("\\f");
+				break;
+			case '\r':
+				append("\\r");
+				break;
+			default:
+				if(c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+					append("\\u");
+					append(HEX[(c >> 12) & 0xF]);
+					append(HEX[(c >> 8) & 0xF]);
+					append(HEX[(c >> 4) & 0xF]);
+					append(HEX[c & 0xF]);
+				} else {
+					append(c);
+				}
+			}
+			previous = c;
+		}
+		append('"');
+	}
+
+	private void append(String value) {
+		ensureCapacity(length + value.length());
+		value.getChars(0, value.length(), chars, length);
+		length += value.length();
+	}
+
+	// digits are written backwards and then reversed in place
+	private void append(long value) {
+		if(value < 0) {
+			append('-');
+		}
+		int start = length;
+		do {
+			append((char) ('0' + Math.abs(value % 10)));
+			value /= 10;
+		} while(value != 0);
+		for(int i = start, j = length - 1; i < j; i++, j--) {
+			char digit = chars[i];
+			chars[i] = chars[j];
+			chars[j] = digit;
+		}
+	}
+
+	private void append(char c) {
+		ensureCapacity(length + 1);
+		chars[length++] = c;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if(capacity > chars.length) {
+			char[] larger = new char[Math.max(capacity, chars.length * 2)];
+			System.arraycopy(chars, 0, larger, 0, length);
+			chars = larger;
+		}
+	}
+
+}
@@ -1,16 +1,13 @@
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -21,8 +18,8 @@ public class FEVERTester {
 	
 	public static void main(String[] args) {
 		try {
-			Scanner answersReader = new Scanner(new FileReader(answersFileName));
-			Scanner resultsReader = new Scanner(new FileReader(resultsFileName));
+			ClaimSource answersReader = new ClaimSource(answersFileName);
+			ClaimSource resultsReader = new ClaimSource(resultsFileName);
 			File oldFile = new File(analysisFileName);
 			if(oldFile.exists()) {
 				oldFile.delete();
@@ -46,44 +43,41 @@ public class FEVERTester {
 				claimCount++;
 				double precision = 0;
 				double recall = 0;
-				String answer = Normalizer.normalize(answersReader.nextLine(), Normalizer.Form.NFC);	
-				JSONObject answerJson = new JSONObject(answer);
-				JSONArray answerEvidence = (JSONArray) answerJson.get("evidence");
-				String label = answerJson.getString("label");
-				int goldEvidenceCount = answerEvidence.length();
+				ClaimSource.Claim answerJson = answersReader.next();
+				List<List<Object[]>> answerEvidence = answerJson.getEvidence();
+				String label = answerJson.getLabel();
+				int goldEvidenceCount = answerEvidence.size();
 				ArrayList<Object[]> correctEvidence = new ArrayList<Object[]>();
-				for(int i = 0; i < answerEvidence.length(); i++) {
-					JSONArray evidenceSet = answerEvidence.getJSONArray(i);
-					JSONArray primarySentence = evidenceSet.getJSONArray(0);
-					if(!primarySentence.get(2).equals(null) && evidenceSet.length() == 1) {
-						String wikiName = primarySentence.get(2).toString();
-						Integer sentNum = primarySentence.getInt(3);
+				for(int i = 0; i < answerEvidence.size(); i++) {
+					List<Object[]> evidenceSet = answerEvidence.get(i);
+					Object[] primarySentence = evidenceSet.get(0);
+					if(primarySentence[2] != null && evidenceSet.size() == 1) {
+						String wikiName = primarySentence[2].toString();
+						Integer sentNum = (Integer) primarySentence[3];
 						Object[] answerArr = {wikiName, sentNum};
 						if(!ArrayIsInList(correctEvidence, answerArr)) {
 							correctEvidence.add(answerArr);
 						}
 					}
-					else if(!primarySentence.get(2).equals(null) && evidenceSet.length() != 1) {
+					else if(primarySentence[2] != null && evidenceSet.size() != 1) {
 						//multi sentence answer, which we always miss
 						Object[] answerArr = {"multi", 0};
 						correctEvidence.add(answerArr);
 					}
 				}
 
-				String result = resultsReader.nextLine();
-				JSONObject resultJson = new JSONObject(result);
-				String claim = Normalizer.normalize(resultJson.getString("claim"), Normalizer.Form.NFC);
+				ClaimSource.Claim resultJson = resultsReader.next();
+				String claim = resultJson.getClaim();
 				
-				JSONArray resultEvidence = (JSONArray) resultJson.get("evidence");
+				List<List<Object[]>> resultEvidence = resultJson.getEvidence();
 
-				JSONArray wikiLines = (JSONArray) resultJson.get("sentences");
 				ArrayList<Object[]> foundEvidence = new ArrayList<Object[]>();
-				for(int i = 0; i < resultEvidence.length(); i++) {
-					JSONArray resultSet = resultEvidence.getJSONArray(i);
-					JSONArray primarySentence = resultSet.getJSONArray(0);
-					if(!primarySentence.get(2).equals(null)) {
-						String wikiName = primarySentence.get(0).toString();
-						Integer sentNum = primarySentence.getInt(1);
+				for(int i = 0; i < resultEvidence.size(); i++) {
+					List<Object[]> resultSet = resultEvidence.get(i);
+					Object[] primarySentence = resultSet.get(0);
+					if(primarySentence[2] != null) {
+						String wikiName = primarySentence[0].toString();
+						Integer sentNum = (Integer) primarySentence[1];
 						Object[] answerArr = {wikiName, sentNum};
 						if(!ArrayIsInList(foundEvidence, answerArr)) {
 							foundEvidence.add(answerArr);
@@ -1,16 +1,7 @@
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.text.Normalizer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -20,35 +11,22 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
-import java.util.Scanner;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
-import edu.mit.jwi.Dictionary;
-import edu.mit.jwi.IDictionary;
-import edu.mit.jwi.item.IIndexWord;
-import edu.mit.jwi.item.ISynset;
-import edu.mit.jwi.item.IWord;
-import edu.mit.jwi.item.IWordID;
 import edu.mit.jwi.item.POS;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.ling.IndexedWord;
 import edu.stanford.nlp.ling.CoreAnnotations.LemmaAnnotation;
-import edu.stanford.nlp.ling.CoreAnnotations.NamedEntityTagAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
-import edu.stanford.nlp.ling.CoreAnnotations.TextAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
 import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.pipeline.CoreDocument;
 import edu.stanford.nlp.pipeline.CoreSentence;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 import edu.stanford.nlp.semgraph.SemanticGraph;
 import edu.stanford.nlp.trees.GrammaticalRelation;
 import edu.stanford.nlp.trees.Tree;
@@ -61,82 +39,93 @@ public class FEVER_OSU {
 	static String claimsFileName = "shared_task_dev_public.jsonl";
 	static String outputFileName = "dev_predicted_evidence.jsonl";
 	static String wikiDirName = "wiki-dump";
+	static String wikiIndexFileName = "wikiIndex.bin";
 
 	static int numClaimsToTest = 20;
 	static int claimBatchSize = 100;
 	static boolean testAll = false;
+	static boolean resume = false;
+	static TopicMode topicMode = TopicMode.PARSE;
+	static int numWorkers = Runtime.getRuntime().availableProcessors();
+	static int claimQueueSize = 64;
+	//when set, main answers claims over HTTP on this port instead of running claimsFileName
+	static int serverPort = 0;
 
 	
-	static Map<String, Map<String, Object>> wikiMap;
-	static Map<String, ArrayList<String>> disambiguationMap;
-	static Map<String, String> lowercaseMap;
+	static WikiIndex wikiIndex;
+	static DocumentStore documentStore;
+	static DocumentCache documentCache;
+	static long documentCacheBytes = 512L << 20;
+	static String posTagCacheFileName = "posTagCache.tsv";
+	static PosTagCache posTagCache;
+	static boolean lexicalPrefilter = true;
+	static boolean batchAnnotation = true;
+	static int annotationThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / numWorkers);
+	static String annotationStoreFileName = "wikiAnnotations.bin";
+	static AnnotationStore annotationStore;
+	static String sentenceIndexFileName = "wikiSentences.bin";
+	static SentenceIndex sentenceIndex;
+	static int sentenceIndexTopK = 10;
+	static boolean sentenceIndexAlways = false;
+	static boolean useClaimResultCache = false;
+	static String claimResultCacheFileName = "claimResultCache.bin";
+	static ClaimResultCache claimResultCache;
+	static long claimResultCacheBytes = 256L << 20;
+	static long claimResultCacheTtlMillis = 7L * 24 * 60 * 60 * 1000;
+	static String metricsFileName = "metrics.prom";
+	static long metricsIntervalMillis = 30 * 1000;
+	static final Metrics metrics = new Metrics();
+	private static final Metrics.Histogram claimSeconds = metrics.histogram("fever_claim_seconds", "Time to verify a claim, claim result cache hits included");
+	private static final Metrics.Histogram parseSeconds = metrics.histogram("fever_parse_seconds", "Time to parse a claim and find its named entities");
+	private static final Metrics.Histogram findDocumentsSeconds = metrics.histogram("fever_find_documents_seconds", "Time to pick a claim's topics and fetch its primary pages");
+	private static final Metrics.Histogram docsFromTopicsSeconds = metrics.histogram("fever_get_docs_from_topics_seconds", "Time to fetch the pages for a claim's topics, part of find_documents");
+	private static final Metrics.Histogram backupDocsSeconds = metrics.histogram("fever_get_backup_docs_seconds", "Time to fetch a claim's backup pages, for claims with no evidence on the primary ones");
+	private static final Metrics.Histogram findSentencesSeconds = metrics.histogram("fever_find_sentences_seconds", "Time to pick evidence lines for a claim, over every set of pages searched");
+	private static final Metrics.Counter claimCacheHits = metrics.counter("fever_claim_cache_hits_total", "Claims answered from the claim result cache");
+	private static final Metrics.Counter documentsFetched = metrics.counter("fever_documents_fetched_total", "Pages fetched for claims, from the document cache or the wiki dump");
+	private static final Metrics.Counter documentsRead = metrics.counter("fever_documents_read_total", "Pages read from the wiki dump on a document cache miss");
+	private static final Metrics.Counter linesScanned = metrics.counter("fever_lines_scanned_total", "Lines of fetched pages considered as evidence");
+	//valid_root only sees the lines named_entities rejects
+	private static final String LINES_PASSED_HELP = "Lines that passed each sentence filter";
+	private static final Metrics.Counter linesPassedPrefilter = metrics.counter("fever_lines_passed_total", LINES_PASSED_HELP, "filter=\"prefilter\"");
+	private static final Metrics.Counter linesPassedNamedEntities = metrics.counter("fever_lines_passed_total", LINES_PASSED_HELP, "filter=\"named_entities\"");
+	private static final Metrics.Counter linesPassedValidRoot = metrics.counter("fever_lines_passed_total", LINES_PASSED_HELP, "filter=\"valid_root\"");
+	//each claim worker formats its result lines into its own reused buffer
+	private static final ThreadLocal<EvidenceLineWriter> lineWriters = ThreadLocal.withInitial(EvidenceLineWriter::new);
 
-    static IDictionary synonymDict;
+    static SynonymIndex synonymIndex;
 
-	@SuppressWarnings("unchecked")
 	public static void main(String[] args) {
 		DateTimeFormatter dtf = DateTimeFormatter.ofPattern("HH:mm:ss");  
 	    System.out.println("Beginning document processing. Time: "+dtf.format(LocalDateTime.now()));	    
-		
-		StanfordCoreNLP pipeline = establishPipeline();
-	    System.out.println("CoreNLP pipeline established. Time: "+dtf.format(LocalDateTime.now()));	    
-	    getWikiMaps(wikiDirName);
-		System.out.println("wikiMaps compiled. Time: "+dtf.format(LocalDateTime.now()));
-		getSynDict();
+		if(!loadResources()) {
+			return;
+		}
+		startMetricsWriter();
+		if(serverPort > 0) {
+			serve();
+			return;
+		}
 		
 
-		int claimCount =0;
 		try {
-			Scanner claimReader = new Scanner(new FileReader(claimsFileName));
-			File oldFile = new File(outputFileName);
-			if(oldFile.exists()) {
-				oldFile.delete();
-			}
-			BufferedWriter writer = new BufferedWriter(new FileWriter(outputFileName, true));
-			
+			ClaimSource claimReader = new ClaimSource(claimsFileName);
+			ResultLog log = ResultLog.open(outputFileName, resume);
+			int claimsDone = log.skipCommitted(claimReader);
 			
-			while(claimReader.hasNext() && (testAll || claimCount < numClaimsToTest)) {
-				claimCount++;
-				try {
-					String claimInfo = claimReader.nextLine();
-					JSONObject claimJson = new JSONObject(claimInfo);
-					String claim = Normalizer.normalize(claimJson.getString("claim"), Normalizer.Form.NFC);   
-					int id = claimJson.getInt("id");
-					System.out.println("Claim " + claimCount + ": " +claim + " Time: " + dtf.format(LocalDateTime.now()));
-					
-					CoreDocument document = new CoreDocument(claim);
-					pipeline.annotate(document);
-					CoreSentence claimDoc = document.sentences().get(0);
-					Tree constituencyTree = claimDoc.constituencyParse();
-					SemanticGraph dependencyGraph = claimDoc.dependencyParse();
-					String formattedClaim = formatSentence(claim);
-					ArrayList<String[]> claimNE = getNamedEntities(formattedClaim, pipeline);
-					Map<String, Object> documents = findDocuments(claim, dependencyGraph, constituencyTree, claimNE);
-					ArrayList<Map<String, String>> primaryDocuments = (ArrayList<Map<String, String>>) documents.get("primary");
-					ArrayList<String> backupDocumentKeys = (ArrayList<String>) documents.get("backup");
-					
-					Map<String, ArrayList<Object[]>> evidenceSentences = findSentences(pipeline, claim, dependencyGraph, constituencyTree, claimNE, primaryDocuments);
-				    if (evidenceSentences.isEmpty()){
-				    	ArrayList<Map<String, String>> backupDocuments = getBackupDocs(backupDocumentKeys);
-				    	evidenceSentences = findSentences(pipeline, claim, dependencyGraph, constituencyTree, claimNE, backupDocuments);
-				    }
-				    
-				    String JSONStr = evidenceToLine(id, claim, evidenceSentences);
-				    writer.append(JSONStr);
-				    writer.append("\n");
-				}catch(Exception e){
-					e.printStackTrace();
-					System.out.println("Something went wrong with processeing claim " + claimCount + ". Skipping");
-				    writer.append("\n");
-				}
-				if(claimCount % claimBatchSize == 0) {
-					writer.close();
-					writer = new BufferedWriter(new FileWriter(outputFileName, true));
-				}
-			    
-			}
+			ClaimExecutor executor = new ClaimExecutor(numWorkers, claimQueueSize, FEVER_OSU::establishPipelines, FEVER_OSU::verifyClaim);
+			System.out.println("Starting " + numWorkers + " claim workers. Time: "+dtf.format(LocalDateTime.now()));
+			int claimCount = executor.run(claimReader, claimsDone, testAll ? Integer.MAX_VALUE : numClaimsToTest, log, claimBatchSize);
 			claimReader.close();
-			writer.close();
+			log.close();
+			System.out.println(claimCount + " claims processed. Time: "+dtf.format(LocalDateTime.now()));
+			System.out.println(documentCache.getStats());
+			posTagCache.save(posTagCacheFileName);
+			if(claimResultCache != null) {
+				System.out.println(claimResultCache.getStats());
+				claimResultCache.save(claimResultCacheFileName);
+			}
+			metrics.save(metricsFileName);
 		}catch(Exception e) {
 			e.printStackTrace();
 		}
@@ -144,33 +133,192 @@ public class FEVER_OSU {
 		
 	}
 	
-	private static StanfordCoreNLP establishPipeline() {
-		Properties props = new Properties();
-		props.setProperty("annotators", "tokenize, ssplit, pos, parse, depparse, lemma, ner");
-	    props.setProperty("coref.algorithm", "neural");
-	    props.put("ner.model", "english.conll.4class.distsim.crf.ser.gz");
-	    StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
-		return pipeline;
+	//loads the wiki index, stores and caches every claim worker shares; false if the wiki index is unusable
+	static boolean loadResources() {
+		DateTimeFormatter dtf = DateTimeFormatter.ofPattern("HH:mm:ss");  
+	    try {
+	    	wikiIndex = WikiIndex.load(wikiDirName, wikiIndexFileName);
+	    } catch (IOException e) {
+	    	System.out.println("Could not load wiki index "+wikiIndexFileName);
+	    	e.printStackTrace();
+	    	return false;
+	    }
+		System.out.println("wikiIndex loaded. Time: "+dtf.format(LocalDateTime.now()));
+		documentStore = new DocumentStore(wikiDirName, wikiIndex.getFileNames());
+		documentCache = new DocumentCache(documentCacheBytes);
+		if(new File(annotationStoreFileName).exists()) {
+			try {
+				annotationStore = AnnotationStore.open(annotationStoreFileName, wikiIndex);
+				System.out.println("annotationStore loaded. Time: "+dtf.format(LocalDateTime.now()));
+			} catch (IOException e) {
+				System.out.println("Could not load annotation store "+annotationStoreFileName);
+				e.printStackTrace();
+			}
+		}
+		if(new File(sentenceIndexFileName).exists()) {
+			try {
+				sentenceIndex = SentenceIndex.open(sentenceIndexFileName, wikiIndex);
+				System.out.println("sentenceIndex loaded. Time: "+dtf.format(LocalDateTime.now()));
+			} catch (IOException e) {
+				System.out.println("Could not load sentence index "+sentenceIndexFileName);
+				e.printStackTrace();
+			}
+		}
+		getSynDict();
+		posTagCache = PosTagCache.load(posTagCacheFileName);
+		if(useClaimResultCache) {
+			claimResultCache = ClaimResultCache.load(claimResultCacheFileName, getConfigFingerprint(), claimResultCacheBytes, claimResultCacheTtlMillis);
+		}
+		return true;
 	}
 	
-	private static void getSynDict() {
+	private static void serve() {
+		final VerificationServer server = new VerificationServer(serverPort, numWorkers, FEVER_OSU::establishPipelines, FEVER_OSU::verifyClaim, metrics);
 		try {
-			synonymDict = new Dictionary (new URL ("file", null , "dict"));
-			synonymDict.open();
-		} catch (MalformedURLException e) {
+			server.start();
+		} catch (IOException e) {
+			System.out.println("Could not start verification server on port "+serverPort);
 			e.printStackTrace();
+			return;
+		}
+		//the caches are saved when the server is stopped
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			public void run() {
+				server.stop();
+				System.out.println(documentCache.getStats());
+				posTagCache.save(posTagCacheFileName);
+				if(claimResultCache != null) {
+					System.out.println(claimResultCache.getStats());
+					claimResultCache.save(claimResultCacheFileName);
+				}
+				metrics.save(metricsFileName);
+			}
+		}, "server-shutdown"));
+	}
+	
+	//rewrites metricsFileName every metricsIntervalMillis, so a run can be watched while it goes
+	private static void startMetricsWriter() {
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while(true) {
+						Thread.sleep(metricsIntervalMillis);
+						metrics.save(metricsFileName);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, "metrics-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	@SuppressWarnings("unchecked")
+	static String verifyClaim(PipelineRegistry pipelines, ClaimSource.Claim claimInfo, int claimCount) throws Exception {
+		DateTimeFormatter dtf = DateTimeFormatter.ofPattern("HH:mm:ss");  
+		long claimStart = System.nanoTime();
+		String claim = claimInfo.getClaim();
+		int id = claimInfo.getId();
+		System.out.println("Claim " + claimCount + ": " +claim + " Time: " + dtf.format(LocalDateTime.now()));
+		if(claimResultCache != null) {
+			Map<String, ArrayList<Object[]>> cachedSentences = claimResultCache.get(claim);
+			if(cachedSentences != null) {
+				claimCacheHits.increment();
+				claimSeconds.observeSince(claimStart);
+				return lineWriters.get().format(id, claim, cachedSentences).toString();
+			}
+		}
+		
+		long stageStart = System.nanoTime();
+		CoreDocument document = new CoreDocument(claim);
+		pipelines.get(PipelineRegistry.Profile.CLAIM).annotate(document);
+		CoreSentence claimDoc = document.sentences().get(0);
+		Tree constituencyTree = claimDoc.constituencyParse();
+		SemanticGraph dependencyGraph = claimDoc.dependencyParse();
+		String formattedClaim = formatSentence(claim);
+		ArrayList<String[]> claimNE = new AnnotatedSentence(formattedClaim, pipelines.get(PipelineRegistry.Profile.NER)).getNamedEntities();
+		parseSeconds.observeSince(stageStart);
+		stageStart = System.nanoTime();
+		Map<String, Object> documents = findDocuments(claim, claimDoc.tokens(), dependencyGraph, constituencyTree, claimNE);
+		findDocumentsSeconds.observeSince(stageStart);
+		ArrayList<WikiDocument> primaryDocuments = (ArrayList<WikiDocument>) documents.get("primary");
+		ArrayList<String> backupDocumentKeys = (ArrayList<String>) documents.get("backup");
+		
+		String root = dependencyGraph.getFirstRoot().originalText().toLowerCase();
+		ClaimContext context = new ClaimContext(claim, root, isVerb(root, pipelines), constituencyTree, claimNE);
+		//findSentences time is summed over the primary, backup and ranked pages
+		long findSentencesNanos = 0;
+		stageStart = System.nanoTime();
+		Map<String, ArrayList<Object[]>> evidenceSentences = findSentences(pipelines, context, primaryDocuments);
+		findSentencesNanos += System.nanoTime() - stageStart;
+	    if (evidenceSentences.isEmpty()){
+	    	stageStart = System.nanoTime();
+	    	ArrayList<WikiDocument> backupDocuments = getBackupDocs(backupDocumentKeys);
+	    	backupDocsSeconds.observeSince(stageStart);
+	    	stageStart = System.nanoTime();
+	    	evidenceSentences = findSentences(pipelines, context, backupDocuments);
+	    	findSentencesNanos += System.nanoTime() - stageStart;
+	    }
+	    //claims whose subject is not a page title fall back to pages ranked by the sentence index
+	    if (sentenceIndex != null && (evidenceSentences.isEmpty() || sentenceIndexAlways)){
+	    	ArrayList<WikiDocument> rankedDocuments = getRankedDocs(claim, primaryDocuments);
+	    	stageStart = System.nanoTime();
+	    	evidenceSentences.putAll(findSentences(pipelines, context, rankedDocuments));
+	    	findSentencesNanos += System.nanoTime() - stageStart;
+	    }
+	    findSentencesSeconds.observeNanos(findSentencesNanos);
+	    if(claimResultCache != null) {
+	    	claimResultCache.put(claim, evidenceSentences);
+	    }
+	    claimSeconds.observeSince(claimStart);
+	    
+	    return lineWriters.get().format(id, claim, evidenceSentences).toString();
+	}
+	
+	//everything besides the claim that decides its evidence; cached results from any other setup are dropped
+	private static String getConfigFingerprint() {
+		StringBuilder config = new StringBuilder();
+		config.append(wikiIndex.getDumpSize()).append('\t').append(wikiIndex.size());
+		config.append('\t').append(topicMode).append('\t').append(lexicalPrefilter);
+		config.append('\t').append(annotationStore != null);
+		config.append('\t').append(sentenceIndex != null).append('\t').append(sentenceIndexTopK).append('\t').append(sentenceIndexAlways);
+		for(PipelineRegistry.Profile profile : PipelineRegistry.Profile.values()) {
+			config.append('\t').append(new TreeMap<Object, Object>(PipelineRegistry.getProperties(profile)));
+		}
+		return ClaimResultCache.fingerprint(config.toString());
+	}
+	
+	static PipelineRegistry establishPipelines() {
+		PipelineRegistry pipelines = new PipelineRegistry(metrics);
+		for(PipelineRegistry.Profile profile : PipelineRegistry.Profile.values()) {
+			pipelines.get(profile);
+		}
+		return pipelines;
+	}
+	
+	private static void getSynDict() {
+		try {
+			synonymIndex = SynonymIndex.load("dict");
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
-        
 	}
 	
 	
-	private static Map<String, Object> findDocuments(String claim, SemanticGraph dependencyGraph, Tree constituencyTree, ArrayList<String[]> namedEntities){
-		ArrayList<String> claimTopics = getAllTopics(claim, dependencyGraph, constituencyTree, namedEntities);
+	private static Map<String, Object> findDocuments(String claim, List<CoreLabel> tokens, SemanticGraph dependencyGraph, Tree constituencyTree, ArrayList<String[]> namedEntities){
+		ArrayList<String> claimTopics = new ArrayList<String>();
+		if(topicMode != TopicMode.SPOT) {
+			claimTopics.addAll(getAllTopics(claim, dependencyGraph, constituencyTree, namedEntities));
+		}
+		if(topicMode != TopicMode.PARSE) {
+			claimTopics.addAll(getSpottedTopics(claim, tokens));
+		}
 		claimTopics = (ArrayList<String>) claimTopics.stream().map(topic -> StringUtils.capitalize(topic)).distinct().collect(Collectors.toList());
 		claimTopics = removeSubsets(claimTopics);
-		ArrayList<Map<String, String>> primaryDocs = getDocsFromTopics(claimTopics);
+		long start = System.nanoTime();
+		ArrayList<WikiDocument> primaryDocs = getDocsFromTopics(claimTopics);
+		docsFromTopicsSeconds.observeSince(start);
 		ArrayList<String> backupDocs = getBackupDocKeys(claimTopics, primaryDocs);
 		Map<String, Object> allDocs = new HashMap<String, Object>();
 		allDocs.put("primary", primaryDocs);
@@ -178,20 +326,46 @@ public class FEVER_OSU {
 		return allDocs;
 	}
 	
-	private static Map<String, ArrayList<Object[]>> findSentences(StanfordCoreNLP pipeline, String claim, SemanticGraph dependencyGraph, 
-			Tree constituencyTree, ArrayList<String[]> namedEntities, ArrayList<Map<String, String>> wikis){
+	private static Map<String, ArrayList<Object[]>> findSentences(PipelineRegistry pipelines, ClaimContext context, ArrayList<WikiDocument> wikis){
 		Map<String, ArrayList<Object[]>> evidenceSentences = new HashMap<String, ArrayList<Object[]>>();
-		String root = dependencyGraph.getFirstRoot().originalText().toLowerCase();
-		for(Map<String, String> wiki : wikis) {
+		//candidate lines from every page are annotated together before any of them is checked
+		List<AnnotatedSentence[]> candidates = new ArrayList<AnnotatedSentence[]>();
+		List<AnnotatedSentence> batch = new ArrayList<AnnotatedSentence>();
+		for(WikiDocument wiki : wikis) {
+			AnnotatedSentence[] wikiCandidates = getCandidateSentences(pipelines, context, wiki);
+			candidates.add(wikiCandidates);
+			for(AnnotatedSentence candidate : wikiCandidates) {
+				if(candidate != null) {
+					batch.add(candidate);
+				}
+			}
+		}
+		if(batchAnnotation) {
+			AnnotatedSentence.annotateAll(batch, pipelines.get(PipelineRegistry.Profile.NER), annotationThreads);
+		}
+		for(int w = 0; w < wikis.size(); w++) {
+			AnnotatedSentence[] wikiCandidates = candidates.get(w);
 			ArrayList<Object[]> wikiSents = new ArrayList<Object[]>();
-			String[] wikiLines = wiki.get("lines").split("\\n\\d*\\t");
-			String wikiName = Normalizer.normalize(wiki.get("id"), Normalizer.Form.NFC);
+			String wikiName = Normalizer.normalize(wikis.get(w).getId(), Normalizer.Form.NFC);
 			String wikiTitle = formatSentence(wikiName.replace("_", " ")).toLowerCase();
-			List<String[]> nane = getNounsAndNamedEntities(wikiTitle, constituencyTree, namedEntities);
-			for(int i = 0; i < wikiLines.length; i++) {
-				String sentence = getSentenceTextFromWikiLines(wikiLines[i]);
-				if(containsNamedEntities(sentence, claim, nane, wikiTitle, pipeline, root) || 
-						containsValidRoot(sentence, root, pipeline)) {
+			List<String[]> nane = context.getNounsAndNamedEntities(wikiTitle);
+			PhraseMatcher matcher = context.getMatcher(wikiTitle);
+			for(int i = 0; i < wikiCandidates.length; i++) {
+				AnnotatedSentence annotatedSentence = wikiCandidates[i];
+				if(annotatedSentence == null) {
+					continue;
+				}
+				String sentence = annotatedSentence.getText();
+				String lowerSentence = sentence.toLowerCase();
+				PhraseMatcher.Matches matches = matcher.match(lowerSentence);
+				boolean passed = containsNamedEntities(annotatedSentence, lowerSentence, matches, context, nane, wikiTitle, pipelines);
+				if(passed) {
+					linesPassedNamedEntities.increment();
+				} else if(containsValidRoot(lowerSentence, matches, nane.size(), context)) {
+					linesPassedValidRoot.increment();
+					passed = true;
+				}
+				if(passed) {
 					Object[] evidence = new Object[2];
 					evidence[0] = i;
 					evidence[1] = sentence;
@@ -205,23 +379,98 @@ public class FEVER_OSU {
 		return evidenceSentences;
 	}
 	
-	private static String evidenceToLine(int id, String claim, Map<String, ArrayList<Object[]>> evidenceSentences) {
-		ArrayList<JSONArray> evidenceSentencesJSON = new ArrayList<JSONArray>();
-		for(String wiki: evidenceSentences.keySet()) {
-			ArrayList<Object[]> evidenceSets = evidenceSentences.get(wiki);
-			for(Object[] evidenceSet : evidenceSets) {
-				Object[] evidenceArr = {wiki, evidenceSet[0], evidenceSet[1]};
-				ArrayList<JSONArray> evidenceSetJSON = new ArrayList<JSONArray>();
-				evidenceSetJSON.add(new JSONArray(Arrays.asList(evidenceArr)));
-				evidenceSentencesJSON.add(new JSONArray(evidenceSetJSON));
+	// the page's lines that pass the lexical prefilter, indexed by line, with null for the rest
+	static AnnotatedSentence[] getCandidateSentences(PipelineRegistry pipelines, ClaimContext context, WikiDocument wiki) {
+		String root = context.getRoot();
+		String[] wikiLines = wiki.getSentences();
+		String wikiName = Normalizer.normalize(wiki.getId(), Normalizer.Form.NFC);
+		String wikiTitle = formatSentence(wikiName.replace("_", " ")).toLowerCase();
+		List<String[]> nane = context.getNounsAndNamedEntities(wikiTitle);
+		if(nane == null) {
+			nane = getNounsAndNamedEntities(wikiTitle, context.getConstituencyTree(), context.getNamedEntities());
+			context.putNounsAndNamedEntities(wikiTitle, nane);
+		}
+		if(context.getMatcher(wikiTitle) == null) {
+			context.putMatcher(wikiTitle, new PhraseMatcher(getClaimPatterns(nane, root)));
+		}
+		Set<String> claimTerms = getClaimTerms(nane, root);
+		AnnotatedSentence[] storedSentences = getStoredSentences(wikiName, wikiLines);
+		AnnotatedSentence[] candidates = new AnnotatedSentence[wikiLines.length];
+		linesScanned.add(wikiLines.length);
+		for(int i = 0; i < wikiLines.length; i++) {
+			String sentence = getSentenceTextFromWikiLines(wikiLines[i]);
+			if(lexicalPrefilter && !sharesClaimTerm(sentence, claimTerms)) {
+				continue;
+			}
+			linesPassedPrefilter.increment();
+			candidates[i] = storedSentences != null ? storedSentences[i]
+					: new AnnotatedSentence(sentence, pipelines.get(PipelineRegistry.Profile.NER));
+		}
+		return candidates;
+	}
+	
+	private static AnnotatedSentence[] getStoredSentences(String wikiName, String[] wikiLines) {
+		if(annotationStore == null) {
+			return null;
+		}
+		int entry = wikiIndex.find(wikiName);
+		if(entry < 0) {
+			return null;
+		}
+		String[] sentences = new String[wikiLines.length];
+		for(int i = 0; i < wikiLines.length; i++) {
+			sentences[i] = getSentenceTextFromWikiLines(wikiLines[i]);
+		}
+		try {
+			return annotationStore.read(entry, sentences);
+		} catch (IOException e) {
+			System.out.println("Could not read annotations for "+wikiName);
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	//patterns are the nouns and named entities in order, then the root on its own, then the lrb and rrb bracket tokens
+	private static List<String> getClaimPatterns(List<String[]> nane, String root) {
+		List<String> patterns = new ArrayList<String>();
+		for(String[] ne : nane) {
+			patterns.add(ne[0]);
+		}
+		patterns.add(" " + root + " ");
+		patterns.add("lrb");
+		patterns.add("rrb");
+		return patterns;
+	}
+	
+	private static Set<String> getClaimTerms(List<String[]> nane, String root) {
+		String[] ignoredTerms = {"a", "an", "the", "of", "and", "in", "on", "to", "-lrb-", "-rrb-", ",", "."};
+		Set<String> claimTerms = new HashSet<String>();
+		for(String[] ne : nane) {
+			boolean added = false;
+			for(String term : ne[0].split("\\s+")) {
+				if(!term.isEmpty() && !Arrays.asList(ignoredTerms).contains(term)) {
+					claimTerms.add(term);
+					added = true;
+				}
+			}
+			if(!added) {
+				//an entity of nothing but ignored words is kept whole, so a line matching it still passes
+				claimTerms.add(ne[0].trim());
+			}
+		}
+		claimTerms.add(root);
+		return claimTerms;
+	}
+	
+	private static boolean sharesClaimTerm(String sentence, Set<String> claimTerms) {
+		//terms are matched anywhere in the line, as the entity and root patterns are, so any line those patterns match is kept
+		String lowerSentence = sentence.toLowerCase();
+		for(String term : claimTerms) {
+			if(lowerSentence.contains(term)) {
+				return true;
 			}
 		}
-		JSONArray evidence = new JSONArray(evidenceSentencesJSON);
-		Map<String, Object> evidenceMap = new HashMap<String, Object>();
-		evidenceMap.put("id", id);
-		evidenceMap.put("claim", claim);
-		evidenceMap.put("evidence", evidence);
-		return new JSONObject(evidenceMap).toString();
+		return false;
 	}
 	
 	private static ArrayList<String> getProperTerms(String sentence, ArrayList<String[]> namedEntities){
@@ -345,6 +594,20 @@ public class FEVER_OSU {
 		return topicPhrases;
 	}
 	
+	private static ArrayList<String> getSpottedTopics(String claim, List<CoreLabel> tokens) {
+		int[] begins = new int[tokens.size()];
+		int[] ends = new int[tokens.size()];
+		for(int i = 0; i < tokens.size(); i++) {
+			begins[i] = tokens.get(i).beginPosition();
+			ends[i] = tokens.get(i).endPosition();
+		}
+		List<String> dets = Arrays.asList("A", "An", "The", "There");
+		return (ArrayList<String>) wikiIndex.getTitleDictionary().spot(claim, begins, ends).stream()
+				.map(phrase -> StringUtils.capitalize(phrase)).map(phrase -> removeEndPunct(phrase)).distinct()
+				.filter(phrase -> !isInt(phrase)).filter(phrase -> !dets.contains(phrase))
+				.collect(Collectors.toList());
+	}
+	
 	private static Set<IndexedWord> getDescendentsWithReln(SemanticGraph dependencyTree, IndexedWord vertex, GrammaticalRelation reln, int layer) {
 		Set<IndexedWord> descendents = dependencyTree.getChildrenWithReln(vertex, reln);
 		Set<IndexedWord> children = dependencyTree.getChildren(vertex);
@@ -462,10 +725,10 @@ public class FEVER_OSU {
 	    return nounPhrases;
 	}
 	
-	private static List<String> lemmatize(StanfordCoreNLP pipeline, String text) {
+	private static List<String> lemmatize(PipelineRegistry pipelines, String text) {
         List<String> lemmas = new ArrayList<String>();
         Annotation document = new Annotation(text);
-        pipeline.annotate(document);
+        pipelines.get(PipelineRegistry.Profile.LEMMA).annotate(document);
 
         List<CoreMap> sentences = document.get(SentencesAnnotation.class);
         for(CoreMap sentence: sentences) {
@@ -477,19 +740,16 @@ public class FEVER_OSU {
         return lemmas;
     }
 	
-	private static List<String> getSynonyms (StanfordCoreNLP pipeline, String word, POS pos, IDictionary dict){
-		List<String> syns = new ArrayList<String>();
+	private static List<String> getSynonyms (PipelineRegistry pipelines, String word, POS pos, SynonymIndex index){
+		List<String> syns = null;
 		String lemma = word;
 		try {
-			 lemma = lemmatize(pipeline, word).get(0);
-			 IIndexWord idxWord = dict.getIndexWord (lemma, pos) ;
-			 IWordID wordID = idxWord.getWordIDs().get(0) ;
-			 IWord iword = dict.getWord(wordID);
-			 ISynset synset = iword.getSynset();
-			 for (IWord syn : synset.getWords()) {
-				 syns.add(syn.getLemma().replace("_", " "));
-		        }
+			 lemma = lemmatize(pipelines, word).get(0);
+			 syns = index.getSynonyms(lemma, pos);
 		}catch(Exception e){
+		}
+		if(syns == null) {
+			syns = new ArrayList<String>();
 			syns.add(lemma);
 		}
 		 return syns;
@@ -533,21 +793,14 @@ public class FEVER_OSU {
 		return isDetSub;	
 	}
 	
-	private static boolean isValidWiki(String title) {
-		boolean valid = false;
-		String wikiKey = title.replace(" ", "_").replace("(", "-LRB-").replace(")", "-RRB-").replace("]", "-RSB-").replace("[", "-LSB-");
-		wikiKey = StringUtils.capitalize(wikiKey);
-		if(wikiMap.containsKey(wikiKey) || disambiguationMap.containsKey(wikiKey) || lowercaseMap.containsKey(wikiKey.toLowerCase())) {
-			valid = true;
-	    }
-		return valid;
+	static boolean isValidWiki(String title) {
+		return wikiIndex.resolveTitle(title) != null;
 	}
 	
-	private static String formatWiki(String title) {
-		String wikiKey = title.replace(" ", "_").replace("(", "-LRB-").replace(")", "-RRB-").replace("]", "-RSB-").replace("[", "-LSB-");
-		wikiKey = StringUtils.capitalize(wikiKey);
-		if(!wikiMap.containsKey(wikiKey) && !disambiguationMap.containsKey(wikiKey) && lowercaseMap.containsKey(wikiKey.toLowerCase())) {
-			wikiKey = lowercaseMap.get(wikiKey.toLowerCase());
+	static String formatWiki(String title) {
+		String wikiKey = wikiIndex.resolveTitle(title);
+		if(wikiKey == null) {
+			wikiKey = TitleDictionary.toWikiKey(title);
 		}
 		return wikiKey;
 	}
@@ -573,29 +826,15 @@ public class FEVER_OSU {
 		return sentence;
 	}
 	
-	private static String formatSentence(String sentence) {
+	static String formatSentence(String sentence) {
 		String newSent = sentence.replace(",", " ,").replace(".", " .").replace(";", " ;").replace(":", " :").replace("'s", " 's").replace("' ", " ' ");
 		newSent = newSent.replace("-LRB-", "-LRB- ").replace("-RRB-", " -RRB-").replace("-RSB-", " -RSB-").replace("-LSB-", " -LSB-");
 		newSent = newSent.replace("(", "-LRB- ").replace(")", " -RRB-").replace("]", " -RSB-").replace("[", " -LSB-");
 		return newSent;
 	}
 	
-	private static boolean isVerb(String word, StanfordCoreNLP pipeline) {
-		CoreDocument document = new CoreDocument(word);
-	    pipeline.annotate(document);
-	    CoreSentence claimDoc = document.sentences().get(0);
-		Tree constituencyTree = claimDoc.constituencyParse();
-		List<Tree> leaves = constituencyTree.getLeaves();
-		Tree wordTree = leaves.get(0);
-		Tree type = wordTree.parent(constituencyTree);
-		String[] verbTags = {"VB", "VBD", "VBG", "VBN", "VBP", "VBZ"};
-		boolean verb = false;
-		if(Arrays.asList(verbTags).contains(type.label().toString())) {
-			verb = true;
-		} 
-		return verb;
-		
-		
+	static boolean isVerb(String word, PipelineRegistry pipelines) {
+		return posTagCache.isVerb(word, pipelines.get(PipelineRegistry.Profile.POS));
 	}
 
 	private static ArrayList<String> getNouns(String wikiTitle, Tree constituencyTree) {
@@ -642,7 +881,11 @@ public class FEVER_OSU {
 		return nounsAndNamedEntities;
 	}
 
-	private static boolean containsNamedEntities(String evidenceSentence, String claim, List<String[]> claimNE, String wikiTitle, StanfordCoreNLP pipeline, String root) {
+	static boolean containsNamedEntities(AnnotatedSentence annotatedSentence, String lowerSentence, PhraseMatcher.Matches matches, ClaimContext context, 
+			List<String[]> claimNE, String wikiTitle, PipelineRegistry pipelines) {
+		String evidenceSentence = annotatedSentence.getText();
+		String claim = context.getClaim();
+		String root = context.getRoot();
 		Map<String, String> altMap = new HashMap<String, String>();
 		altMap.put("NATIONALITY", "COUNTRY");
 		altMap.put("COUNTRY", "NATIONALITY");
@@ -655,11 +898,12 @@ public class FEVER_OSU {
 		}
 
 		String[] entityToBeSwapped = {null, null};
-		for(String[] ne: claimNE) {
-			if(!evidenceSentence.toLowerCase().contains(ne[0]) && entityToBeSwapped[1] == null) {
+		for(int j = 0; j < claimNE.size(); j++) {
+			String[] ne = claimNE.get(j);
+			if(!matches.contains(j) && entityToBeSwapped[1] == null) {
 				entityToBeSwapped = ne.clone();
 			}
-			else if(!evidenceSentence.toLowerCase().contains(ne[0])) {
+			else if(!matches.contains(j)) {
 				validSentence = false;
 			}	
 		}
@@ -667,7 +911,7 @@ public class FEVER_OSU {
 			//both sentences need to be noun complements, have at least 2 other matching entities
 			//or the evidence needs to have a synonym of the missing noun
 			if(!isNounComplement(claim) || !isNounComplement(evidenceSentence)) {
-				validSentence = containsSynonym(entityToBeSwapped[0], POS.NOUN, evidenceSentence, pipeline);
+				validSentence = containsSynonym(entityToBeSwapped[0], POS.NOUN, annotatedSentence, pipelines, context);
 				if(!validSentence) {
 				}
 			}
@@ -675,13 +919,13 @@ public class FEVER_OSU {
 		
 		List<String[]> evidenceEntities = null;
 		if(validSentence && entityToBeSwapped[1] != "NOUN" && entityToBeSwapped[1] != null) {
-			if(isVerb(root, pipeline) && !(evidenceSentence.contains(root) || containsSynonym(root, POS.VERB, evidenceSentence, pipeline))) {
+			if(context.isRootVerb() && !(evidenceSentence.contains(root) || containsSynonym(root, POS.VERB, annotatedSentence, pipelines, context))) {
 				//if the evidence is missing a root verb and a named entity, then the evidence needs to have a synonym of the missing root
 				validSentence = false;
 			}
 			else {
 				//otherwise the entity can be swapped out for one of the same type
-				evidenceEntities = getNamedEntities(evidenceSentence, pipeline).stream().filter(arr -> !wikiTitle.contains(arr[0]))
+				evidenceEntities = annotatedSentence.getNamedEntities().stream().filter(arr -> !wikiTitle.contains(arr[0]))
 						.collect(Collectors.toList());
 				validSentence = false;
 				String alternative = altMap.get(entityToBeSwapped[1]);
@@ -697,20 +941,24 @@ public class FEVER_OSU {
 				(claim.contains("born") || claim.contains("died") || claim.contains("dead"))) {
 			//if the sentence relates to birth or death, we can check to see if the sentence has wikipedia-formatted birth/death info 
 			if(evidenceEntities == null) {
-				evidenceEntities = getNamedEntities(evidenceSentence, pipeline).stream().filter(arr -> !wikiTitle.contains(arr[0]))
+				evidenceEntities = annotatedSentence.getNamedEntities().stream().filter(arr -> !wikiTitle.contains(arr[0]))
 					.collect(Collectors.toList());
 			}
-			validSentence = wikiBirthDeath(claim, evidenceEntities, evidenceSentence);
+			validSentence = wikiBirthDeath(evidenceEntities, lowerSentence, matches.firstStart(claimNE.size() + 1), matches.lastEnd(claimNE.size() + 2));
 		}
 
 		return validSentence;
 	}
 	
-	private static boolean containsSynonym(String word, POS pos, String sentence, StanfordCoreNLP pipeline) {
+	private static boolean containsSynonym(String word, POS pos, AnnotatedSentence sentence, PipelineRegistry pipelines, ClaimContext context) {
 		boolean contains = false;
 		String[] ignoredLemmas = {"have", "do", "be"};
-		List<String> sentLemmas = lemmatize(pipeline, sentence);
-		List<String> syns = getSynonyms(pipeline, word, pos, synonymDict);
+		List<String> sentLemmas = sentence.getLemmas();
+		List<String> syns = context.getSynonyms(word, pos);
+		if(syns == null) {
+			syns = getSynonyms(pipelines, word, pos, synonymIndex);
+			context.putSynonyms(word, pos, syns);
+		}
 		for(String syn : syns) {
 			if(sentLemmas.contains(syn) && !Arrays.asList(ignoredLemmas).contains(syn)) {
 				contains = true;
@@ -736,23 +984,27 @@ public class FEVER_OSU {
 		return false;
 	}
 	
-	private static boolean containsValidRoot(String sentence, String root, StanfordCoreNLP pipeline) {
+	private static boolean containsValidRoot(String lowerSentence, PhraseMatcher.Matches matches, int rootPattern, ClaimContext context) {
 		String[] isWords = {"is", "was", "be", "are", "were", "has", "had", "have"};
-		String rootAlone = " " + root + " ";
+		String root = context.getRoot();
 		boolean validRoot = false;
-		if(isVerb(root, pipeline) && !Arrays.asList(isWords).contains(root) && 
-				(sentence.toLowerCase().contains(rootAlone) || sentence.toLowerCase().startsWith(root))) {
+		if(context.isRootVerb() && !Arrays.asList(isWords).contains(root) && 
+				(matches.contains(rootPattern) || lowerSentence.startsWith(root))) {
 			validRoot = true;
 		}
 		return validRoot;
 	}
 	
-	private static boolean wikiBirthDeath(String claim, List<String[]> SentNameEntities, String sentence) {
+	private static boolean wikiBirthDeath(List<String[]> SentNameEntities, String lowerSentence, int lrbStart, int rrbEnd) {
 		boolean edgeCase = false;
+		if(lrbStart < 0 || rrbEnd < 0) {
+			return false;
+		}
 		List<String> dates = SentNameEntities.stream().filter(ne -> ne[1].equals("DATE")).map(ne -> ne[0]).collect(Collectors.toList());
 		for(String date : dates) {
-			boolean parenDate = Pattern.compile("lrb(.*)" + date + "(.*)rrb").matcher(sentence.toLowerCase()).find();
-			if(parenDate) {
+			//the date has to sit between the first lrb and the last rrb of the sentence
+			int dateStart = lowerSentence.indexOf(date, lrbStart + 3);
+			if(dateStart >= 0 && dateStart + date.length() <= rrbEnd - 3) {
 				edgeCase = true;
 			}
 		}
@@ -760,115 +1012,53 @@ public class FEVER_OSU {
 		return edgeCase;
 	}
 	
-	private static ArrayList<String[]> getNamedEntities(String sentence, StanfordCoreNLP pipeline){
-
-		ArrayList<CoreLabel> tokens = getSentenceTokens(sentence, pipeline);
-		ArrayList<String[]> namedEntities = new ArrayList<String[]>();
-		String neTag = "";
-		String namedEntity = "";
-		boolean neActive = false;
-		for(int i = 0; i < tokens.size(); i++) {
-			String ne = tokens.get(i).get(NamedEntityTagAnnotation.class);
-			if(!neActive && !ne.equals("O")) {
-				neActive = true;
-				neTag = ne;
-				namedEntity += tokens.get(i).get(TextAnnotation.class);
-			}
-			else if(neActive && ne.equals(neTag)) {
-				namedEntity += " " + tokens.get(i).get(TextAnnotation.class);
-			}
-			else if(neActive && !ne.equals(neTag) && !ne.equals("O")) {
-				String[] neInfo = {namedEntity.toLowerCase(), neTag};
-				namedEntities.add(neInfo);		
-				namedEntity = "";
-				neTag = ne;
-				namedEntity = tokens.get(i).get(TextAnnotation.class);
-			}
-			else if(neActive && ne.equals("O")) {
-				neActive = false;
-				String[] neInfo = {namedEntity.toLowerCase(), neTag};
-				namedEntities.add(neInfo);		
-				namedEntity = "";
-				neTag = "";
-			}
-		}
-		if(neActive) {
-			String[] neInfo = {namedEntity.toLowerCase(), neTag};
-			namedEntities.add(neInfo);
-		}
-		return namedEntities;
-   }
-
-	private static ArrayList<CoreLabel> getSentenceTokens(String sentence, StanfordCoreNLP pipeline){
-		Annotation document = new Annotation(sentence);
-	    pipeline.annotate(document);
-	    List<CoreMap> sentences = document.get(SentencesAnnotation.class);
-	    ArrayList<CoreLabel> tokens = new ArrayList<CoreLabel>();
-	    if(sentences.isEmpty()) {
-	    	return tokens;
-	    }
-	    CoreMap tokenSen = sentences.get(0);
-	    
-	    
-	    for (CoreLabel token: tokenSen.get(TokensAnnotation.class)) {
-	        tokens.add(token);
-	      }
-	    return tokens;
+	private static WikiDocument fetchDocument(String key, int entry) throws IOException, JSONException {
+		documentsFetched.increment();
+		WikiDocument wikiDoc = documentCache.get(key);
+		if(wikiDoc == null) {
+			documentsRead.increment();
+			wikiDoc = WikiDocument.fromJson(documentStore.read(wikiIndex.getFileId(entry), wikiIndex.getOffset(entry)));
+			documentCache.put(key, wikiDoc);
+		}
+		return wikiDoc;
 	}
 	
-	private static ArrayList<Map<String, String>> getDocsFromTopics(ArrayList<String> possibleTopics) {
-		ArrayList<Map<String, String>> wikiDocs = new ArrayList<Map<String, String>>();
+	static ArrayList<WikiDocument> getDocsFromTopics(ArrayList<String> possibleTopics) {
+		ArrayList<WikiDocument> wikiDocs = new ArrayList<WikiDocument>();
 		for(String topic: possibleTopics) {
 			String urlTitle = formatWiki(topic);
-			Map<String, String> wikiDoc = new HashMap<String, String>();
 			boolean emptyDisam = false;
-			if (!topic.isEmpty() && wikiMap.containsKey(urlTitle)){
-				Map<String, Object> fileInfo = wikiMap.get(urlTitle);
-				Path wikiDirPath = Paths.get(wikiDirName);
-				Path wikiListPath =  wikiDirPath.resolve(Paths.get((String)fileInfo.get("fileName")));
-				String wikiListName = wikiListPath.toString();
-
+			int entry = wikiIndex.find(urlTitle);
+			if (!topic.isEmpty() && entry >= 0){
 				try {
-					BufferedReader reader = new BufferedReader(new FileReader(wikiListName));
-					Long byteOffset = (Long) fileInfo.get("offset");
-					reader.skip(byteOffset);
-				    String wikiEntry = reader.readLine();
-				    JSONObject wikiJson = new JSONObject(wikiEntry);
-				    if (wikiJson.getString("text").toLowerCase().contains((topic.toLowerCase()+" may refer to : ")) ||
-				    		wikiJson.getString("text").toLowerCase().contains((topic.toLowerCase()+" may also refer to : "))) {
-			    		ArrayList<Map<String, String>> disambiguationChildren = findDisambiguationChildren(wikiJson);
+				    WikiDocument wikiDoc = fetchDocument(urlTitle, entry);
+				    if (wikiDoc.getText().toLowerCase().contains((topic.toLowerCase()+" may refer to : ")) ||
+				    		wikiDoc.getText().toLowerCase().contains((topic.toLowerCase()+" may also refer to : "))) {
+			    		ArrayList<WikiDocument> disambiguationChildren = findDisambiguationChildren(wikiDoc);
 			    		wikiDocs.addAll(disambiguationChildren);
 			    		if(disambiguationChildren.isEmpty()) {
 			    			emptyDisam = true;
 			    		}
 			    	}
 				    else {
-					    wikiDoc.put("id", wikiJson.getString("id"));
-					    wikiDoc.put("text", wikiJson.getString("text"));
-					    wikiDoc.put("lines", wikiJson.getString("lines"));
 					    wikiDocs.add(wikiDoc);
 				    }
-				    reader.close();
-				}
-				
-				catch (FileNotFoundException e) {
-					System.out.println("Could not open file  "+fileInfo.get("fileName"));
-					e.printStackTrace();
 				} catch (JSONException e) {
 					e.printStackTrace();
 				} catch (IOException e) {
+					System.out.println("Could not read file  "+wikiIndex.getFileName(entry));
 					e.printStackTrace();
 				}
 				
 			}
 			
-			if (!topic.isEmpty() && disambiguationMap.containsKey(urlTitle)){
+			if (!topic.isEmpty() && wikiIndex.containsDisambiguation(urlTitle)){
 				if(emptyDisam) {
-					ArrayList<String> disambiguations = disambiguationMap.get(urlTitle);
+					ArrayList<String> disambiguations = wikiIndex.getDisambiguationChildren(urlTitle);
 					ArrayList<String> unchecked = new ArrayList<String>(disambiguations);
-					for(Map<String, String> wiki: wikiDocs) {
-						if(disambiguations.contains(wiki.get("id"))) {
-							unchecked.remove(wiki.get("id"));
+					for(WikiDocument wiki: wikiDocs) {
+						if(disambiguations.contains(wiki.getId())) {
+							unchecked.remove(wiki.getId());
 						}
 					}
 					wikiDocs.addAll(getDocsFromTopics(unchecked));
@@ -878,47 +1068,53 @@ public class FEVER_OSU {
 		return wikiDocs;
 	}
 	
-	private static ArrayList<Map<String, String>> getBackupDocs(ArrayList<String> backupDocumentKeys){
-		ArrayList<Map<String, String>> backupDocs = new ArrayList<Map<String, String>>();
+	private static ArrayList<WikiDocument> getBackupDocs(ArrayList<String> backupDocumentKeys){
+		ArrayList<WikiDocument> backupDocs = new ArrayList<WikiDocument>();
 		for(String key : backupDocumentKeys) {
 			try {
-				Map<String, String> backupDoc = new HashMap<String, String>();
-				Map<String, Object> fileInfo = wikiMap.get(key);
-                Path wikiDirPath = Paths.get(wikiDirName);
-                Path wikiListPath =  wikiDirPath.resolve(Paths.get((String)fileInfo.get("fileName")));
-                String wikiListName = wikiListPath.toString();
-
-				BufferedReader reader = new BufferedReader(new FileReader(wikiListName));
-				Long byteOffset = (Long) fileInfo.get("offset");
-				reader.skip(byteOffset);
-			    String wikiEntry = reader.readLine();
-			    JSONObject wikiJson = new JSONObject(wikiEntry);
-			    backupDoc.put("id", wikiJson.getString("id"));
-			    backupDoc.put("text", wikiJson.getString("text"));
-			    backupDoc.put("lines", wikiJson.getString("lines"));
-			    backupDocs.add(backupDoc);
-			    reader.close();
-			} catch (FileNotFoundException e) {
-				System.out.println("Could not open file  "+ key);
-				e.printStackTrace();
+				int entry = wikiIndex.find(key);
+				if(entry < 0) {
+					continue;
+				}
+			    backupDocs.add(fetchDocument(key, entry));
 			} catch (JSONException e) {
 				e.printStackTrace();
 			} catch (IOException e) {
+				System.out.println("Could not read file  "+ key);
 				e.printStackTrace();
 			}
 		}
 		return backupDocs;
 	}
 	
-	private static ArrayList<String> getBackupDocKeys(ArrayList<String> possibleTopics, ArrayList<Map<String, String>> existingDocs) {
+	private static ArrayList<WikiDocument> getRankedDocs(String claim, ArrayList<WikiDocument> existingDocs){
+		ArrayList<String> rankedKeys = new ArrayList<String>();
+		try {
+			for(SentenceIndex.Hit hit : sentenceIndex.search(claim, sentenceIndexTopK)) {
+				String key = wikiIndex.getTitle(hit.getEntry());
+				if(!rankedKeys.contains(key)) {
+					rankedKeys.add(key);
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Could not search sentence index for "+claim);
+			e.printStackTrace();
+		}
+		for(WikiDocument wiki: existingDocs) {
+			rankedKeys.remove(wiki.getId());
+		}
+		return getBackupDocs(rankedKeys);
+	}
+	
+	private static ArrayList<String> getBackupDocKeys(ArrayList<String> possibleTopics, ArrayList<WikiDocument> existingDocs) {
 		ArrayList<String> backupDocs = new ArrayList<String>();
 		for(String topic: possibleTopics) {
 			String urlTitle = StringUtils.capitalize(topic.replace(' ', '_').replace("(", "-LRB-").replace(")", "-RRB-"));
-			if (!topic.isEmpty() && disambiguationMap.containsKey(urlTitle)){
-				backupDocs.addAll(disambiguationMap.get(urlTitle));
-				for(Map<String, String> wiki: existingDocs) {
-					if(backupDocs.contains(wiki.get("id"))) {
-						backupDocs.remove(wiki.get("id"));
+			if (!topic.isEmpty() && wikiIndex.containsDisambiguation(urlTitle)){
+				backupDocs.addAll(wikiIndex.getDisambiguationChildren(urlTitle));
+				for(WikiDocument wiki: existingDocs) {
+					if(backupDocs.contains(wiki.getId())) {
+						backupDocs.remove(wiki.getId());
 					}
 				}
 			}
@@ -927,85 +1123,18 @@ public class FEVER_OSU {
 		return backupDocs;
 	}
 	
-	private static ArrayList<Map<String, String>> findDisambiguationChildren(JSONObject disambiguation){
-		ArrayList<Map<String, String>> disambiguationChildren = new ArrayList<Map<String, String>>();
-		try {
-			String lines = disambiguation.getString("lines");
-			String[] entries = lines.split("[\\n[\\d+]\\t]+");
-			ArrayList<String> topics = new ArrayList<String>();
-			for(int i = 1; i < entries.length; i++) {
-				String[] tabs = entries[i].split("\\t");
-				String wiki = tabs.length > 1 ? tabs[1] : null;
-				if(wiki != null && !wiki.replace(' ', '_').replace("(", "-LRB-").replace(")", "-RRB-").equals(disambiguation.getString("id"))) {
-					topics.add(wiki);
-				}
-			}
-			disambiguationChildren = getDocsFromTopics(topics);
-		} catch (JSONException e) {
-			e.printStackTrace();
-		}
-		
-		return disambiguationChildren;
-	}
-	
-	private static void getWikiMaps(String wikiDirName) {
-		wikiMap = new HashMap<String, Map <String, Object>>();
-		disambiguationMap = new HashMap<String, ArrayList<String>>();
-		lowercaseMap = new HashMap<String, String>();
-		
-		File wikiDir = new File(wikiDirName);
-		File[] wikiEntries = wikiDir.listFiles();
-		int filesProcessed = 0;
-		if (wikiEntries != null){
-			for (File wikiEntryList : wikiEntries) {
-				try {
-					System.out.print("*");
-					Scanner s = new Scanner(wikiEntryList);
-					long byteOffset = 0;
-					while(s.hasNextLine()) {
-						String wikiEntry = Normalizer.normalize(s.nextLine(), Normalizer.Form.NFC);
-					    JSONObject wikiJson = new JSONObject(wikiEntry);
-					    String id = wikiJson.getString("id");
-					    if(!id.isEmpty()) {
-					    	String fileName = wikiEntryList.getName();
-					    	Map<String, Object> docLocation = new HashMap<String, Object>();
-					    	docLocation.put("fileName", fileName);
-					    	docLocation.put("offset", byteOffset);
-							wikiMap.put(id, docLocation);
-							lowercaseMap.put(id.toLowerCase(), id);
-							
-							int paren = id.indexOf("-LRB-");
-							if(paren > 0 && !id.contains("disambiguation")) {
-								String base = id.substring(0, paren-1);
-								ArrayList<String> disambiguationChildren = new ArrayList<String>();
-								if(disambiguationMap.containsKey(base)) {
-									disambiguationChildren = disambiguationMap.get(base);
-									disambiguationChildren.add(id);
-									disambiguationMap.put(base, disambiguationChildren);
-								}
-								else {
-									disambiguationChildren.add(id);
-									disambiguationMap.put(base, disambiguationChildren);
-								}
-							}
-					    }
-					    byteOffset += wikiEntry.getBytes().length;
-						byteOffset += 1;
-					}
-					filesProcessed++;
-					if(filesProcessed % 10 == 0 || filesProcessed == 109) {
-						System.out.println("\nWiki processing "+filesProcessed+"/109 done.");
-					}
-						
-					s.close();
-				} catch (FileNotFoundException e) {
-					System.out.println("Could not open file  "+wikiEntryList.getName());
-					e.printStackTrace();
-				} catch (JSONException e) {
-					e.printStackTrace();
-				}
+	private static ArrayList<WikiDocument> findDisambiguationChildren(WikiDocument disambiguation){
+		String lines = disambiguation.getLines();
+		String[] entries = lines.split("[\\n[\\d+]\\t]+");
+		ArrayList<String> topics = new ArrayList<String>();
+		for(int i = 1; i < entries.length; i++) {
+			String[] tabs = entries[i].split("\\t");
+			String wiki = tabs.length > 1 ? tabs[1] : null;
+			if(wiki != null && !wiki.replace(' ', '_').replace("(", "-LRB-").replace(")", "-RRB-").equals(disambiguation.getId())) {
+				topics.add(wiki);
 			}
 		}
+		return getDocsFromTopics(topics);
 	}
 	
 }
@@ -0,0 +1,178 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Counters and latency histograms for the claim pipeline, written in the Prometheus text format.
+ * A metric is registered once per name and label set and then updated without locking, so every
+ * claim worker records into the same one. Labels are given already formatted, e.g. filter="prefilter".
+ */
+public class Metrics {
+
+	// upper bounds in seconds of the latency buckets, with +Inf after the last
+	static final double[] LATENCY_BUCKETS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+	public static class Counter {
+		private final LongAdder value = new LongAdder();
+
+		public void increment() {
+			value.increment();
+		}
+
+		public void add(long amount) {
+			value.add(amount);
+		}
+
+		public long get() {
+			return value.sum();
+		}
+	}
+
+	public static class Histogram {
+		private final long[] boundNanos = new long[LATENCY_BUCKETS.length];
+		// observations per bucket, not cumulative, with +Inf last
+		private final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS.length + 1];
+		private final LongAdder count = new LongAdder();
+		private final LongAdder sumNanos = new LongAdder();
+
+		private Histogram() {
+			for(int i = 0; i < LATENCY_BUCKETS.length; i++) {
+				boundNanos[i] = (long) (LATENCY_BUCKETS[i] * 1e9);
+			}
+			for(int i = 0; i < buckets.length; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+
+		public void observeNanos(long nanos) {
+			int bucket = 0;
+			while(bucket < boundNanos.length && nanos > boundNanos[bucket]) {
+				bucket++;
+			}
+			buckets[bucket].increment();
+			count.increment();
+			sumNanos.add(nanos);
+		}
+
+		// records the time since startNanos, a System.nanoTime() reading
+		public void observeSince(long startNanos) {
+			observeNanos(System.nanoTime() - startNanos);
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+	}
+
+	// name -> {type, help, labels -> metric}
+	private final Map<String, Object[]> families = new LinkedHashMap<String, Object[]>();
+
+	public Counter counter(String name, String help) {
+		return counter(name, help, "");
+	}
+
+	public synchronized Counter counter(String name, String help, String labels) {
+		return (Counter) register(name, "counter", help, labels);
+	}
+
+	public Histogram histogram(String name, String help) {
+		return histogram(name, help, "");
+	}
+
+	public synchronized Histogram histogram(String name, String help, String labels) {
+		return (Histogram) register(name, "histogram", help, labels);
+	}
+
+	@SuppressWarnings("unchecked")
+	public synchronized void writeTo(Writer out) throws IOException {
+		for(Map.Entry<String, Object[]> family : families.entrySet()) {
+			String name = family.getKey();
+			out.write("# HELP " + name + " " + family.getValue()[1] + "\n");
+			out.write("# TYPE " + name + " " + family.getValue()[0] + "\n");
+			for(Map.Entry<String, Object> metric : ((Map<String, Object>) family.getValue()[2]).entrySet()) {
+				String labels = metric.getKey();
+				if(metric.getValue() instanceof Counter) {
+					out.write(name + withLabels(labels, "") + " " + ((Counter) metric.getValue()).get() + "\n");
+					continue;
+				}
+				Histogram histogram = (Histogram) metric.getValue();
+				// _count is the bucket total rather than the count, so it always agrees with +Inf under concurrent observations
+				long cumulative = 0;
+				for(int i = 0; i < LATENCY_BUCKETS.length; i++) {
+					cumulative += histogram.buckets[i].sum();
+					out.write(name + "_bucket" + withLabels(labels, "le=\"" + LATENCY_BUCKETS[i] + "\"") + " " + cumulative + "\n");
+				}
+				cumulative += histogram.buckets[LATENCY_BUCKETS.length].sum();
+				out.write(name + "_bucket" + withLabels(labels, "le=\"+Inf\"") + " " + cumulative + "\n");
+				out.write(name + "_sum" + withLabels(labels, "") + " " + histogram.sumNanos.sum() / 1e9 + "\n");
+				out.write(name + "_count" + withLabels(labels, "") + " " + cumulative + "\n");
+			}
+		}
+	}
+
+	public String toString() {
+		StringWriter out = new StringWriter();
+		try {
+			writeTo(out);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return out.toString();
+	}
+
+	// written beside the file and renamed over it, so a scraper never reads half of it
+	public void save(String fileName) {
+		File tmpFile = new File(fileName + ".tmp");
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
+			writeTo(out);
+		} catch (IOException e) {
+			System.out.println("Could not write metrics " + fileName);
+			e.printStackTrace();
+			return;
+		}
+		try {
+			Files.move(tmpFile.toPath(), new File(fileName).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.out.println("Could not write metrics " + fileName);
+			e.printStackTrace();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object register(String name, String type, String help, String labels) {
+		Object[] family = families.get(name);
+		if(family == null) {
+			family = new Object[] {type, help, new LinkedHashMap<String, Object>()};
+			families.put(name, family);
+		} else if(!family[0].equals(type)) {
+			throw new IllegalArgumentException(name + " is already registered as a " + family[0]);
+		}
+		Map<String, Object> metrics = (Map<String, Object>) family[2];
+		Object metric = metrics.get(labels);
+		if(metric == null) {
+			metric = type.equals("counter") ? new Counter() : new Histogram();
+			metrics.put(labels, metric);
+		}
+		return metric;
+	}
+
+	private static String withLabels(String labels, String extra) {
+		if(labels.isEmpty() && extra.isEmpty()) {
+			return "";
+		}
+		if(labels.isEmpty() || extra.isEmpty()) {
+			return "{" + labels + extra + "}";
+		}
+		return "{" + labels + "," + extra + "}";
+	}
+
+}
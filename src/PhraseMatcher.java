@@ -0,0 +1,161 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/*
+ * Aho-Corasick automaton over a fixed list of phrases. One left-to-right pass over a text
+ * reports, for every phrase, where its first occurrence starts and where its last occurrence
+ * ends, so a sentence can be checked against all of a claim's entities at once instead of
+ * calling contains() per entity. Matching only reads the automaton and can run on any thread.
+ */
+public class PhraseMatcher {
+
+	private final int patternCount;
+	private final int[] patternLengths;
+	private final char[][] transitionChars;
+	private final int[][] transitionTargets;
+	private final int[] fail;
+	private final int[][] outputs;
+	private final int[] emptyPatterns;
+
+	public PhraseMatcher(List<String> patterns) {
+		patternCount = patterns.size();
+		patternLengths = new int[patternCount];
+		List<Map<Character, Integer>> gotoMaps = new ArrayList<Map<Character, Integer>>();
+		List<List<Integer>> stateOutputs = new ArrayList<List<Integer>>();
+		List<Integer> empty = new ArrayList<Integer>();
+		gotoMaps.add(new HashMap<Character, Integer>());
+		stateOutputs.add(new ArrayList<Integer>());
+		for(int p = 0; p < patternCount; p++) {
+			String pattern = patterns.get(p);
+			patternLengths[p] = pattern.length();
+			if(pattern.isEmpty()) {
+				empty.add(p);
+				continue;
+			}
+			int state = 0;
+			for(int i = 0; i < pattern.length(); i++) {
+				Integer next = gotoMaps.get(state).get(pattern.charAt(i));
+				if(next == null) {
+					next = gotoMaps.size();
+					gotoMaps.add(new HashMap<Character, Integer>());
+					stateOutputs.add(new ArrayList<Integer>());
+					gotoMaps.get(state).put(pattern.charAt(i), next);
+				}
+				state = next;
+			}
+			stateOutputs.get(state).add(p);
+		}
+
+		int stateCount = gotoMaps.size();
+		transitionChars = new char[stateCount][];
+		transitionTargets = new int[stateCount][];
+		for(int state = 0; state < stateCount; state++) {
+			Character[] chars = gotoMaps.get(state).keySet().toArray(new Character[0]);
+			Arrays.sort(chars);
+			transitionChars[state] = new char[chars.length];
+			transitionTargets[state] = new int[chars.length];
+			for(int i = 0; i < chars.length; i++) {
+				transitionChars[state][i] = chars[i];
+				transitionTargets[state][i] = gotoMaps.get(state).get(chars[i]);
+			}
+		}
+
+		// breadth-first, so every failure target is finished before the states that use it
+		fail = new int[stateCount];
+		outputs = new int[stateCount][];
+		outputs[0] = new int[0];
+		Queue<Integer> queue = new ArrayDeque<Integer>();
+		for(int target : transitionTargets[0]) {
+			queue.add(target);
+		}
+		while(!queue.isEmpty()) {
+			int state = queue.poll();
+			List<Integer> stateOutput = stateOutputs.get(state);
+			int[] output = new int[stateOutput.size() + outputs[fail[state]].length];
+			for(int i = 0; i < stateOutput.size(); i++) {
+				output[i] = stateOutput.get(i);
+			}
+			System.arraycopy(outputs[fail[state]], 0, output, stateOutput.size(), outputs[fail[state]].length);
+			outputs[state] = output;
+			for(int i = 0; i < transitionChars[state].length; i++) {
+				char c = transitionChars[state][i];
+				int target = transitionTargets[state][i];
+				int f = fail[state];
+				while(f != 0 && transition(f, c) < 0) {
+					f = fail[f];
+				}
+				int next = transition(f, c);
+				fail[target] = next >= 0 ? next : 0;
+				queue.add(target);
+			}
+		}
+		emptyPatterns = new int[empty.size()];
+		for(int i = 0; i < empty.size(); i++) {
+			emptyPatterns[i] = empty.get(i);
+		}
+	}
+
+	public Matches match(String text) {
+		Matches matches = new Matches(patternCount);
+		for(int p : emptyPatterns) {
+			matches.firstStarts[p] = 0;
+			matches.lastEnds[p] = text.length();
+		}
+		int state = 0;
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			int next = transition(state, c);
+			while(next < 0 && state != 0) {
+				state = fail[state];
+				next = transition(state, c);
+			}
+			state = next >= 0 ? next : 0;
+			for(int p : outputs[state]) {
+				if(matches.firstStarts[p] < 0) {
+					matches.firstStarts[p] = i + 1 - patternLengths[p];
+				}
+				matches.lastEnds[p] = i + 1;
+			}
+		}
+		return matches;
+	}
+
+	public int size() {
+		return patternCount;
+	}
+
+	private int transition(int state, char c) {
+		int i = Arrays.binarySearch(transitionChars[state], c);
+		return i >= 0 ? transitionTargets[state][i] : -1;
+	}
+
+	public static class Matches {
+		private final int[] firstStarts;
+		private final int[] lastEnds;
+
+		private Matches(int patternCount) {
+			firstStarts = new int[patternCount];
+			lastEnds = new int[patternCount];
+			Arrays.fill(firstStarts, -1);
+			Arrays.fill(lastEnds, -1);
+		}
+
+		public boolean contains(int pattern) {
+			return firstStarts[pattern] >= 0;
+		}
+
+		public int firstStart(int pattern) {
+			return firstStarts[pattern];
+		}
+
+		public int lastEnd(int pattern) {
+			return lastEnds[pattern];
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+/*
+ * The CoreNLP pipelines a claim worker needs, one per annotator profile. Only the claim itself
+ * goes through the constituency and dependency parsers; evidence sentences, lemma lookups and
+ * single-word tagging use the shorter profiles. Pipelines are built on first use and a registry
+ * is not shared between threads. Given metrics, every document a pipeline annotates is counted
+ * under its profile, batch annotation included.
+ */
+public class PipelineRegistry {
+
+	public enum Profile {
+		CLAIM("tokenize, ssplit, pos, parse, depparse, lemma, ner"),
+		NER("tokenize, ssplit, pos, lemma, ner"),
+		LEMMA("tokenize, ssplit, pos, lemma"),
+		POS("tokenize, ssplit, pos");
+
+		private final String annotators;
+
+		Profile(String annotators) {
+			this.annotators = annotators;
+		}
+
+		public String getAnnotators() {
+			return annotators;
+		}
+	}
+
+	private final Map<Profile, StanfordCoreNLP> pipelines = new EnumMap<Profile, StanfordCoreNLP>(Profile.class);
+	private final Metrics metrics;
+
+	public PipelineRegistry() {
+		this(null);
+	}
+
+	public PipelineRegistry(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public StanfordCoreNLP get(Profile profile) {
+		StanfordCoreNLP pipeline = pipelines.get(profile);
+		if(pipeline == null) {
+			pipeline = metrics == null ? new StanfordCoreNLP(getProperties(profile)) : newCountingPipeline(profile);
+			pipelines.put(profile, pipeline);
+		}
+		return pipeline;
+	}
+
+	// annotate(Iterable, numThreads) and annotate(CoreDocument) both come through annotate(Annotation)
+	private StanfordCoreNLP newCountingPipeline(Profile profile) {
+		final Metrics.Counter annotateCalls = metrics.counter("fever_annotate_calls_total", "Documents annotated, by pipeline profile",
+				"profile=\"" + profile.name().toLowerCase() + "\"");
+		return new StanfordCoreNLP(getProperties(profile)) {
+			@Override
+			public void annotate(Annotation annotation) {
+				annotateCalls.increment();
+				super.annotate(annotation);
+			}
+		};
+	}
+
+	public static Properties getProperties(Profile profile) {
+		Properties props = new Properties();
+		props.setProperty("annotators", profile.getAnnotators());
+		props.setProperty("coref.algorithm", "neural");
+		props.put("ner.model", "english.conll.4class.distsim.crf.ser.gz");
+		return props;
+	}
+
+}
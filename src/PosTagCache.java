@@ -0,0 +1,106 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.stanford.nlp.pipeline.CoreDocument;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+/*
+ * word -> part of speech tag, as given by tagging the word on its own. The claim root is
+ * checked against every candidate sentence, so the tagger runs once per distinct word and the
+ * result is shared by all claim workers. The table can be saved as word<TAB>tag lines under a
+ * version line and loaded again on the next run; a file without the current version line is
+ * ignored.
+ */
+public class PosTagCache {
+
+	// bumped whenever the tags come from a different source; 2 is the POS tagger on the word alone
+	static final String VERSION_LINE = "#version\t2";
+
+	private static final List<String> verbTags = Arrays.asList("VB", "VBD", "VBG", "VBN", "VBP", "VBZ");
+
+	private final Map<String, String> tags = new ConcurrentHashMap<String, String>();
+
+	public static PosTagCache load(String fileName) {
+		PosTagCache cache = new PosTagCache();
+		File cacheFile = new File(fileName);
+		if(!cacheFile.exists()) {
+			return cache;
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile), StandardCharsets.UTF_8))) {
+			if(!VERSION_LINE.equals(reader.readLine())) {
+				System.out.println("POS tag cache " + fileName + " is from an older version. Starting empty.");
+				return cache;
+			}
+			String line;
+			while((line = reader.readLine()) != null) {
+				int tab = line.indexOf('\t');
+				if(tab > 0) {
+					cache.tags.put(line.substring(0, tab), line.substring(tab + 1));
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Could not read POS tag cache "+fileName);
+			e.printStackTrace();
+		}
+		return cache;
+	}
+
+	public void save(String fileName) {
+		File tmpFile = new File(fileName + ".tmp");
+		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8))) {
+			writer.append(VERSION_LINE).append('\n');
+			for(Map.Entry<String, String> tag : tags.entrySet()) {
+				if(tag.getKey().indexOf('\t') >= 0 || tag.getKey().indexOf('\n') >= 0) {
+					continue;
+				}
+				writer.append(tag.getKey()).append('\t').append(tag.getValue()).append('\n');
+			}
+		} catch (IOException e) {
+			System.out.println("Could not write POS tag cache "+fileName);
+			e.printStackTrace();
+			return;
+		}
+		File cacheFile = new File(fileName);
+		if(cacheFile.exists()) {
+			cacheFile.delete();
+		}
+		if(!tmpFile.renameTo(cacheFile)) {
+			System.out.println("Could not write POS tag cache "+fileName);
+		}
+	}
+
+	public String getTag(String word, StanfordCoreNLP pipeline) {
+		String tag = tags.get(word);
+		if(tag == null) {
+			tag = tagWord(word, pipeline);
+			tags.putIfAbsent(word, tag);
+		}
+		return tag;
+	}
+
+	public boolean isVerb(String word, StanfordCoreNLP pipeline) {
+		return verbTags.contains(getTag(word, pipeline));
+	}
+
+	public int size() {
+		return tags.size();
+	}
+
+	private static String tagWord(String word, StanfordCoreNLP pipeline) {
+		CoreDocument document = new CoreDocument(word);
+		pipeline.annotate(document);
+		return document.tokens().get(0).tag();
+	}
+
+}
@@ -0,0 +1,170 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.json.JSONException;
+
+/*
+ * Append-only results file with one line per claim, in claims file order. Lines are held in
+ * memory until commit(), which appends them, fsyncs the file and then replaces the checkpoint
+ * (<output>.checkpoint: claims committed, file length, id of the last committed claim). A crash
+ * loses at most the claims since the last commit. Opened with resume, the file is cut back to
+ * the checkpointed length and skipCommitted moves the claims reader past the claims already in
+ * it, so a run carries on where the last one stopped.
+ */
+public class ResultLog implements Closeable {
+
+	private final String checkpointFileName;
+	private final FileChannel channel;
+	private final OutputStream channelStream;
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream(1 << 16);
+	private final Writer pendingWriter = new OutputStreamWriter(pending, StandardCharsets.UTF_8);
+
+	private int committedClaims = 0;
+	private Integer lastClaimId = null;
+	private int pendingClaims = 0;
+	private Integer pendingLastClaimId = null;
+
+	private ResultLog(String fileName, boolean resume) throws IOException {
+		checkpointFileName = fileName + ".checkpoint";
+		long committedBytes = 0;
+		if(resume) {
+			committedBytes = readCheckpoint(fileName);
+		} else {
+			new File(checkpointFileName).delete();
+		}
+		channel = FileChannel.open(new File(fileName).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		channel.truncate(committedBytes);
+		channel.position(committedBytes);
+		channelStream = Channels.newOutputStream(channel);
+	}
+
+	public static ResultLog open(String fileName, boolean resume) throws IOException {
+		return new ResultLog(fileName, resume);
+	}
+
+	// reads past the claims already in the file, checking the last one is the claim the checkpoint recorded
+	public int skipCommitted(ClaimSource claimReader) throws IOException {
+		Integer claimId = null;
+		for(int i = 0; i < committedClaims; i++) {
+			if(!claimReader.hasNext()) {
+				throw new IOException("Claims file is shorter than checkpoint " + checkpointFileName);
+			}
+			try {
+				claimId = idOf(claimReader.next());
+			} catch (JSONException e) {
+				claimId = null;
+			}
+		}
+		if(claimId == null ? lastClaimId != null : !claimId.equals(lastClaimId)) {
+			throw new IOException("Checkpoint " + checkpointFileName + " was not written for this claims file");
+		}
+		return committedClaims;
+	}
+
+	// claimInfo is null when the claim could not be read
+	public void append(ClaimSource.Claim claimInfo, String line) throws IOException {
+		pendingWriter.write(line);
+		endLine(claimInfo);
+	}
+
+	public void append(ClaimSource.Claim claimInfo, EvidenceLineWriter line) throws IOException {
+		line.writeTo(pendingWriter);
+		endLine(claimInfo);
+	}
+
+	public void commit() throws IOException {
+		pendingWriter.flush();
+		if(pendingClaims == 0) {
+			return;
+		}
+		pending.writeTo(channelStream);
+		pending.reset();
+		channel.force(false);
+		committedClaims += pendingClaims;
+		lastClaimId = pendingLastClaimId;
+		pendingClaims = 0;
+		writeCheckpoint(channel.position());
+	}
+
+	public void close() throws IOException {
+		try {
+			commit();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void endLine(ClaimSource.Claim claimInfo) throws IOException {
+		pendingWriter.write('\n');
+		pendingClaims++;
+		pendingLastClaimId = idOf(claimInfo);
+	}
+
+	private static Integer idOf(ClaimSource.Claim claimInfo) {
+		if(claimInfo == null) {
+			return null;
+		}
+		try {
+			return claimInfo.getId();
+		} catch (JSONException e) {
+			return null;
+		}
+	}
+
+	// returns the committed length, or 0 to start over when there is no usable checkpoint
+	private long readCheckpoint(String fileName) throws IOException {
+		File checkpointFile = new File(checkpointFileName);
+		if(!checkpointFile.exists()) {
+			System.out.println("No checkpoint at " + checkpointFileName + ". Starting " + fileName + " over.");
+			return 0;
+		}
+		String[] fields;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(checkpointFile), StandardCharsets.UTF_8))) {
+			String line = reader.readLine();
+			fields = line == null ? new String[0] : line.split("\t");
+		}
+		if(fields.length != 3) {
+			throw new IOException("Could not read checkpoint " + checkpointFileName);
+		}
+		long committedBytes;
+		try {
+			committedBytes = Long.parseLong(fields[1]);
+			committedClaims = Integer.parseInt(fields[0]);
+			lastClaimId = fields[2].equals("-") ? null : Integer.valueOf(fields[2]);
+		} catch (NumberFormatException e) {
+			throw new IOException("Could not read checkpoint " + checkpointFileName, e);
+		}
+		if(new File(fileName).length() < committedBytes) {
+			throw new IOException(fileName + " is shorter than checkpoint " + checkpointFileName);
+		}
+		System.out.println("Resuming " + fileName + " after " + committedClaims + " claims.");
+		return committedBytes;
+	}
+
+	// written beside the checkpoint, synced and then renamed over it, so a crash leaves the old or the new one
+	private void writeCheckpoint(long committedBytes) throws IOException {
+		File tmpFile = new File(checkpointFileName + ".tmp");
+		try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+			String checkpoint = committedClaims + "\t" + committedBytes + "\t" + (lastClaimId == null ? "-" : lastClaimId) + "\n";
+			out.write(checkpoint.getBytes(StandardCharsets.UTF_8));
+			out.getFD().sync();
+		}
+		Files.move(tmpFile.toPath(), new File(checkpointFileName).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+}
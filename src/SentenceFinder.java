@@ -1,50 +1,29 @@
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.text.Normalizer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
-import java.util.Scanner;
-import java.util.regex.Pattern;
+import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
-import edu.mit.jwi.Dictionary;
-import edu.mit.jwi.IDictionary;
-import edu.mit.jwi.item.IIndexWord;
-import edu.mit.jwi.item.ISynset;
-import edu.mit.jwi.item.IWord;
-import edu.mit.jwi.item.IWordID;
 import edu.mit.jwi.item.POS;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.ling.CoreAnnotations.LemmaAnnotation;
-import edu.stanford.nlp.ling.CoreAnnotations.NamedEntityTagAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
-import edu.stanford.nlp.ling.CoreAnnotations.TextAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
 import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.pipeline.CoreDocument;
 import edu.stanford.nlp.pipeline.CoreSentence;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 import edu.stanford.nlp.semgraph.SemanticGraph;
 import edu.stanford.nlp.trees.Tree;
 import edu.stanford.nlp.util.CoreMap;
@@ -55,77 +34,104 @@ public class SentenceFinder {
 	static String claimsFileName = "shared_task_dev.jsonl";
 	static String outputFileName = "found_sentences.jsonl";
 	static String wikiDirName = "wiki-dump";
+	static String wikiIndexFileName = "wikiIndex.bin";
 
 	static int numClaimsToTest = 10;
 	static int claimBatchSize = 100;
 	static boolean testAll = false;
+	static boolean resume = false;
 
 	
-	static Map<String, Map<String, Object>> wikiMap;
-	//static Map<String, ArrayList<String>> disambiguationMap;
-	//static Map<String, String> lowercaseMap;
+	static WikiIndex wikiIndex;
+	static DocumentStore documentStore;
+	static DocumentCache documentCache;
+	static long documentCacheBytes = 512L << 20;
+	static String posTagCacheFileName = "posTagCache.tsv";
+	static PosTagCache posTagCache;
+	static boolean lexicalPrefilter = true;
+	static boolean batchAnnotation = true;
+	static int annotationThreads = Runtime.getRuntime().availableProcessors();
+	static String annotationStoreFileName = "wikiAnnotations.bin";
+	static AnnotationStore annotationStore;
 
-    static IDictionary synonymDict;
+    static SynonymIndex synonymIndex;
 
 	public static void main(String[] args) {
 		DateTimeFormatter dtf = DateTimeFormatter.ofPattern("HH:mm:ss");  
 	    System.out.println("Beginning document processing. Time: "+dtf.format(LocalDateTime.now()));	    
 		
-		StanfordCoreNLP pipeline = establishPipeline();
+		PipelineRegistry pipelines = establishPipelines();
 	    System.out.println("CoreNLP pipeline established. Time: "+dtf.format(LocalDateTime.now()));	    
-	    getWikiMaps(wikiDirName);
-		System.out.println("wikiMaps compiled. Time: "+dtf.format(LocalDateTime.now()));
+	    try {
+	    	wikiIndex = WikiIndex.load(wikiDirName, wikiIndexFileName);
+	    } catch (IOException e) {
+	    	System.out.println("Could not load wiki index "+wikiIndexFileName);
+	    	e.printStackTrace();
+	    	return;
+	    }
+		System.out.println("wikiIndex loaded. Time: "+dtf.format(LocalDateTime.now()));
+		documentStore = new DocumentStore(wikiDirName, wikiIndex.getFileNames());
+		documentCache = new DocumentCache(documentCacheBytes);
+		if(new File(annotationStoreFileName).exists()) {
+			try {
+				annotationStore = AnnotationStore.open(annotationStoreFileName, wikiIndex);
+				System.out.println("annotationStore loaded. Time: "+dtf.format(LocalDateTime.now()));
+			} catch (IOException e) {
+				System.out.println("Could not load annotation store "+annotationStoreFileName);
+				e.printStackTrace();
+			}
+		}
 		getSynDict();
+		posTagCache = PosTagCache.load(posTagCacheFileName);
 		
 
 		int claimCount =0;
 		try {
-			Scanner claimReader = new Scanner(new FileReader(claimsFileName));
-			File oldFile = new File(outputFileName);
-			if(oldFile.exists()) {
-				oldFile.delete();
-			}
-			BufferedWriter writer = new BufferedWriter(new FileWriter(outputFileName, true));
+			ClaimSource claimReader = new ClaimSource(claimsFileName);
+			ResultLog log = ResultLog.open(outputFileName, resume);
+			claimCount = log.skipCommitted(claimReader);
+			EvidenceLineWriter lineWriter = new EvidenceLineWriter();
 			
 			
 			while(claimReader.hasNext() && (testAll || claimCount < numClaimsToTest)) {
 				claimCount++;
+				ClaimSource.Claim claimInfo = null;
 				try {
-					String claimInfo = claimReader.nextLine();
-					JSONObject claimJson = new JSONObject(claimInfo);
-					String claim = Normalizer.normalize(claimJson.getString("claim"), Normalizer.Form.NFC);   
-					int id = claimJson.getInt("id");
+					claimInfo = claimReader.next();
+					String claim = claimInfo.getClaim();
+					int id = claimInfo.getId();
 					System.out.println("Claim " + claimCount + ": " +claim + " Time: " + dtf.format(LocalDateTime.now()));
 					
 					CoreDocument document = new CoreDocument(claim);
-					pipeline.annotate(document);
+					pipelines.get(PipelineRegistry.Profile.CLAIM).annotate(document);
 					CoreSentence claimDoc = document.sentences().get(0);
 					Tree constituencyTree = claimDoc.constituencyParse();
 					SemanticGraph dependencyGraph = claimDoc.dependencyParse();
 					String formattedClaim = formatSentence(claim);
-					ArrayList<String[]> claimNE = getNamedEntities(formattedClaim, pipeline);
-					ArrayList<Map<String, String>> documents = findGivenDoc(claimInfo);
+					ArrayList<String[]> claimNE = new AnnotatedSentence(formattedClaim, pipelines.get(PipelineRegistry.Profile.NER)).getNamedEntities();
+					ArrayList<WikiDocument> documents = findGivenDoc(claimInfo);
 					//Map<String, Object> documents = findDocuments(claim, dependencyGraph, constituencyTree, claimNE);
 					
-					Map<String, ArrayList<Object[]>> evidenceSentences = findSentences(pipeline, claim, dependencyGraph, constituencyTree, claimNE, documents);
+					String root = dependencyGraph.getFirstRoot().originalText().toLowerCase();
+					ClaimContext context = new ClaimContext(claim, root, isVerb(root, pipelines), constituencyTree, claimNE);
+					Map<String, ArrayList<Object[]>> evidenceSentences = findSentences(pipelines, context, documents);
 				    
 				    
-				    String JSONStr = evidenceToLine(id, claim, evidenceSentences);
-				    writer.append(JSONStr);
-				    writer.append("\n");
+				    log.append(claimInfo, lineWriter.format(id, claim, evidenceSentences));
 				}catch(Exception e){
 					e.printStackTrace();
 					System.out.println("Something went wrong with processeing claim " + claimCount + ". Skipping");
-				    writer.append("\n");
+				    log.append(claimInfo, "");
 				}
 				if(claimCount % claimBatchSize == 0) {
-					writer.close();
-					writer = new BufferedWriter(new FileWriter(outputFileName, true));
+					log.commit();
 				}
 			    
 			}
 			claimReader.close();
-			writer.close();
+			log.close();
+			System.out.println(documentCache.getStats());
+			posTagCache.save(posTagCacheFileName);
 		}catch(Exception e) {
 			e.printStackTrace();
 		}
@@ -133,61 +139,72 @@ public class SentenceFinder {
 		
 	}
 	
-	private static StanfordCoreNLP establishPipeline() {
-		Properties props = new Properties();
-		props.setProperty("annotators", "tokenize, ssplit, pos, parse, depparse, lemma, ner");
-	    props.setProperty("coref.algorithm", "neural");
-	    props.put("ner.model", "english.conll.4class.distsim.crf.ser.gz");
-	    StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
-		return pipeline;
+	private static PipelineRegistry establishPipelines() {
+		PipelineRegistry pipelines = new PipelineRegistry();
+		for(PipelineRegistry.Profile profile : PipelineRegistry.Profile.values()) {
+			pipelines.get(profile);
+		}
+		return pipelines;
 	}
 	
 	private static void getSynDict() {
 		try {
-			synonymDict = new Dictionary (new URL ("file", null , "dict"));
-			synonymDict.open();
-		} catch (MalformedURLException e) {
-			e.printStackTrace();
+			synonymIndex = SynonymIndex.load("dict");
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
-        
 	}
 	
-	private static ArrayList<Map<String, String>> findGivenDoc(String answerInfo){
-		ArrayList<Map<String, String>> docMap = new ArrayList<Map<String, String>>();
-		JSONObject answerJson;
-		try {
-			answerJson = new JSONObject(answerInfo);
-			JSONArray answerEvidence = (JSONArray) answerJson.get("evidence");
-			String wikiName = answerEvidence.getJSONArray(0).getJSONArray(0).get(2).toString();
-			wikiName = Normalizer.normalize(wikiName, Normalizer.Form.NFC);
-			if(wikiName.equals("null")) {
-				return docMap;
-			}
-			ArrayList<String> wikiArrayList= new ArrayList<String>();
-			wikiArrayList.add(wikiName);
-			docMap = getBackupDocs(wikiArrayList);
-		} catch (JSONException e) {
-			e.printStackTrace();
+	private static ArrayList<WikiDocument> findGivenDoc(ClaimSource.Claim answerInfo){
+		ArrayList<WikiDocument> docMap = new ArrayList<WikiDocument>();
+		List<List<Object[]>> answerEvidence = answerInfo.getEvidence();
+		if(answerEvidence.isEmpty() || answerEvidence.get(0).isEmpty()) {
+			return docMap;
+		}
+		Object wikiName = answerEvidence.get(0).get(0)[2];
+		if(wikiName == null) {
+			return docMap;
 		}
+		ArrayList<String> wikiArrayList= new ArrayList<String>();
+		wikiArrayList.add(wikiName.toString());
+		docMap = getBackupDocs(wikiArrayList);
 		return docMap;
 	}
 	
-	private static Map<String, ArrayList<Object[]>> findSentences(StanfordCoreNLP pipeline, String claim, SemanticGraph dependencyGraph, 
-			Tree constituencyTree, ArrayList<String[]> namedEntities, ArrayList<Map<String, String>> wikis){
+	private static Map<String, ArrayList<Object[]>> findSentences(PipelineRegistry pipelines, ClaimContext context, ArrayList<WikiDocument> wikis){
 		Map<String, ArrayList<Object[]>> evidenceSentences = new HashMap<String, ArrayList<Object[]>>();
-		String root = dependencyGraph.getFirstRoot().originalText().toLowerCase();
-		for(Map<String, String> wiki : wikis) {
+		//candidate lines from every page are annotated together before any of them is checked
+		List<AnnotatedSentence[]> candidates = new ArrayList<AnnotatedSentence[]>();
+		List<AnnotatedSentence> batch = new ArrayList<AnnotatedSentence>();
+		for(WikiDocument wiki : wikis) {
+			AnnotatedSentence[] wikiCandidates = getCandidateSentences(pipelines, context, wiki);
+			candidates.add(wikiCandidates);
+			for(AnnotatedSentence candidate : wikiCandidates) {
+				if(candidate != null) {
+					batch.add(candidate);
+				}
+			}
+		}
+		if(batchAnnotation) {
+			AnnotatedSentence.annotateAll(batch, pipelines.get(PipelineRegistry.Profile.NER), annotationThreads);
+		}
+		for(int w = 0; w < wikis.size(); w++) {
+			AnnotatedSentence[] wikiCandidates = candidates.get(w);
 			ArrayList<Object[]> wikiSents = new ArrayList<Object[]>();
-			String[] wikiLines = wiki.get("lines").split("\\n\\d*\\t");
-			String wikiName = Normalizer.normalize(wiki.get("id"), Normalizer.Form.NFC);
+			String wikiName = Normalizer.normalize(wikis.get(w).getId(), Normalizer.Form.NFC);
 			String wikiTitle = formatSentence(wikiName.replace("_", " ")).toLowerCase();
-			List<String[]> nane = getNounsAndNamedEntities(wikiTitle, constituencyTree, namedEntities);
-			for(int i = 0; i < wikiLines.length; i++) {
-				String sentence = getSentenceTextFromWikiLines(wikiLines[i]);
-				if(containsNamedEntities(sentence, claim, nane, wikiTitle, pipeline, root) || 
-						containsValidRoot(sentence, root, pipeline)) {
+			List<String[]> nane = context.getNounsAndNamedEntities(wikiTitle);
+			PhraseMatcher matcher = context.getMatcher(wikiTitle);
+			for(int i = 0; i < wikiCandidates.length; i++) {
+				AnnotatedSentence annotatedSentence = wikiCandidates[i];
+				if(annotatedSentence == null) {
+					continue;
+				}
+				String sentence = annotatedSentence.getText();
+				String lowerSentence = sentence.toLowerCase();
+				PhraseMatcher.Matches matches = matcher.match(lowerSentence);
+				if(containsNamedEntities(annotatedSentence, lowerSentence, matches, context, nane, wikiTitle, pipelines) || 
+						containsValidRoot(lowerSentence, matches, nane.size(), context)) {
 					Object[] evidence = new Object[2];
 					evidence[0] = i;
 					evidence[1] = sentence;
@@ -201,29 +218,102 @@ public class SentenceFinder {
 		return evidenceSentences;
 	}
 	
-	private static String evidenceToLine(int id, String claim, Map<String, ArrayList<Object[]>> evidenceSentences) {
-		ArrayList<JSONArray> evidenceSentencesJSON = new ArrayList<JSONArray>();
-		for(String wiki: evidenceSentences.keySet()) {
-			ArrayList<Object[]> evidenceSets = evidenceSentences.get(wiki);
-			for(Object[] evidenceSet : evidenceSets) {
-				Object[] evidenceArr = {wiki, evidenceSet[0], evidenceSet[1]};
-				ArrayList<JSONArray> evidenceSetJSON = new ArrayList<JSONArray>();
-				evidenceSetJSON.add(new JSONArray(Arrays.asList(evidenceArr)));
-				evidenceSentencesJSON.add(new JSONArray(evidenceSetJSON));
+	// the page's lines that pass the lexical prefilter, indexed by line, with null for the rest
+	private static AnnotatedSentence[] getCandidateSentences(PipelineRegistry pipelines, ClaimContext context, WikiDocument wiki) {
+		String root = context.getRoot();
+		String[] wikiLines = wiki.getSentences();
+		String wikiName = Normalizer.normalize(wiki.getId(), Normalizer.Form.NFC);
+		String wikiTitle = formatSentence(wikiName.replace("_", " ")).toLowerCase();
+		List<String[]> nane = context.getNounsAndNamedEntities(wikiTitle);
+		if(nane == null) {
+			nane = getNounsAndNamedEntities(wikiTitle, context.getConstituencyTree(), context.getNamedEntities());
+			context.putNounsAndNamedEntities(wikiTitle, nane);
+		}
+		if(context.getMatcher(wikiTitle) == null) {
+			context.putMatcher(wikiTitle, new PhraseMatcher(getClaimPatterns(nane, root)));
+		}
+		Set<String> claimTerms = getClaimTerms(nane, root);
+		AnnotatedSentence[] storedSentences = getStoredSentences(wikiName, wikiLines);
+		AnnotatedSentence[] candidates = new AnnotatedSentence[wikiLines.length];
+		for(int i = 0; i < wikiLines.length; i++) {
+			String sentence = getSentenceTextFromWikiLines(wikiLines[i]);
+			if(lexicalPrefilter && !sharesClaimTerm(sentence, claimTerms)) {
+				continue;
 			}
+			candidates[i] = storedSentences != null ? storedSentences[i]
+					: new AnnotatedSentence(sentence, pipelines.get(PipelineRegistry.Profile.NER));
+		}
+		return candidates;
+	}
+	
+	private static AnnotatedSentence[] getStoredSentences(String wikiName, String[] wikiLines) {
+		if(annotationStore == null) {
+			return null;
+		}
+		int entry = wikiIndex.find(wikiName);
+		if(entry < 0) {
+			return null;
+		}
+		String[] sentences = new String[wikiLines.length];
+		for(int i = 0; i < wikiLines.length; i++) {
+			sentences[i] = getSentenceTextFromWikiLines(wikiLines[i]);
+		}
+		try {
+			return annotationStore.read(entry, sentences);
+		} catch (IOException e) {
+			System.out.println("Could not read annotations for "+wikiName);
+			e.printStackTrace();
+			return null;
 		}
-		JSONArray evidence = new JSONArray(evidenceSentencesJSON);
-		Map<String, Object> evidenceMap = new HashMap<String, Object>();
-		evidenceMap.put("id", id);
-		evidenceMap.put("claim", claim);
-		evidenceMap.put("evidence", evidence);
-		return new JSONObject(evidenceMap).toString();
 	}
 	
-	private static List<String> lemmatize(StanfordCoreNLP pipeline, String text) {
+	//patterns are the nouns and named entities in order, then the root on its own, then the lrb and rrb bracket tokens
+	private static List<String> getClaimPatterns(List<String[]> nane, String root) {
+		List<String> patterns = new ArrayList<String>();
+		for(String[] ne : nane) {
+			patterns.add(ne[0]);
+		}
+		patterns.add(" " + root + " ");
+		patterns.add("lrb");
+		patterns.add("rrb");
+		return patterns;
+	}
+	
+	private static Set<String> getClaimTerms(List<String[]> nane, String root) {
+		String[] ignoredTerms = {"a", "an", "the", "of", "and", "in", "on", "to", "-lrb-", "-rrb-", ",", "."};
+		Set<String> claimTerms = new HashSet<String>();
+		for(String[] ne : nane) {
+			boolean added = false;
+			for(String term : ne[0].split("\\s+")) {
+				if(!term.isEmpty() && !Arrays.asList(ignoredTerms).contains(term)) {
+					claimTerms.add(term);
+					added = true;
+				}
+			}
+			if(!added) {
+				//an entity of nothing but ignored words is kept whole, so a line matching it still passes
+				claimTerms.add(ne[0].trim());
+			}
+		}
+		claimTerms.add(root);
+		return claimTerms;
+	}
+	
+	private static boolean sharesClaimTerm(String sentence, Set<String> claimTerms) {
+		//terms are matched anywhere in the line, as the entity and root patterns are, so any line those patterns match is kept
+		String lowerSentence = sentence.toLowerCase();
+		for(String term : claimTerms) {
+			if(lowerSentence.contains(term)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static List<String> lemmatize(PipelineRegistry pipelines, String text) {
         List<String> lemmas = new ArrayList<String>();
         Annotation document = new Annotation(text);
-        pipeline.annotate(document);
+        pipelines.get(PipelineRegistry.Profile.LEMMA).annotate(document);
 
         List<CoreMap> sentences = document.get(SentencesAnnotation.class);
         for(CoreMap sentence: sentences) {
@@ -235,19 +325,16 @@ public class SentenceFinder {
         return lemmas;
     }
 	
-	private static List<String> getSynonyms (StanfordCoreNLP pipeline, String word, POS pos, IDictionary dict){
-		List<String> syns = new ArrayList<String>();
+	private static List<String> getSynonyms (PipelineRegistry pipelines, String word, POS pos, SynonymIndex index){
+		List<String> syns = null;
 		String lemma = word;
 		try {
-			 lemma = lemmatize(pipeline, word).get(0);
-			 IIndexWord idxWord = dict.getIndexWord (lemma, pos) ;
-			 IWordID wordID = idxWord.getWordIDs().get(0) ;
-			 IWord iword = dict.getWord(wordID);
-			 ISynset synset = iword.getSynset();
-			 for (IWord syn : synset.getWords()) {
-				 syns.add(syn.getLemma().replace("_", " "));
-		        }
+			 lemma = lemmatize(pipelines, word).get(0);
+			 syns = index.getSynonyms(lemma, pos);
 		}catch(Exception e){
+		}
+		if(syns == null) {
+			syns = new ArrayList<String>();
 			syns.add(lemma);
 		}
 		 return syns;
@@ -272,22 +359,8 @@ public class SentenceFinder {
 		return newSent;
 	}
 	
-	private static boolean isVerb(String word, StanfordCoreNLP pipeline) {
-		CoreDocument document = new CoreDocument(word);
-	    pipeline.annotate(document);
-	    CoreSentence claimDoc = document.sentences().get(0);
-		Tree constituencyTree = claimDoc.constituencyParse();
-		List<Tree> leaves = constituencyTree.getLeaves();
-		Tree wordTree = leaves.get(0);
-		Tree type = wordTree.parent(constituencyTree);
-		String[] verbTags = {"VB", "VBD", "VBG", "VBN", "VBP", "VBZ"};
-		boolean verb = false;
-		if(Arrays.asList(verbTags).contains(type.label().toString())) {
-			verb = true;
-		} 
-		return verb;
-		
-		
+	private static boolean isVerb(String word, PipelineRegistry pipelines) {
+		return posTagCache.isVerb(word, pipelines.get(PipelineRegistry.Profile.POS));
 	}
 
 	private static ArrayList<String> getNouns(String wikiTitle, Tree constituencyTree) {
@@ -334,7 +407,11 @@ public class SentenceFinder {
 		return nounsAndNamedEntities;
 	}
 
-	private static boolean containsNamedEntities(String evidenceSentence, String claim, List<String[]> claimNE, String wikiTitle, StanfordCoreNLP pipeline, String root) {
+	private static boolean containsNamedEntities(AnnotatedSentence annotatedSentence, String lowerSentence, PhraseMatcher.Matches matches, ClaimContext context, 
+			List<String[]> claimNE, String wikiTitle, PipelineRegistry pipelines) {
+		String evidenceSentence = annotatedSentence.getText();
+		String claim = context.getClaim();
+		String root = context.getRoot();
 		Map<String, String> altMap = new HashMap<String, String>();
 		altMap.put("NATIONALITY", "COUNTRY");
 		altMap.put("COUNTRY", "NATIONALITY");
@@ -347,11 +424,12 @@ public class SentenceFinder {
 		}
 
 		String[] entityToBeSwapped = {null, null};
-		for(String[] ne: claimNE) {
-			if(!evidenceSentence.toLowerCase().contains(ne[0]) && entityToBeSwapped[1] == null) {
+		for(int j = 0; j < claimNE.size(); j++) {
+			String[] ne = claimNE.get(j);
+			if(!matches.contains(j) && entityToBeSwapped[1] == null) {
 				entityToBeSwapped = ne.clone();
 			}
-			else if(!evidenceSentence.toLowerCase().contains(ne[0])) {
+			else if(!matches.contains(j)) {
 				validSentence = false;
 			}	
 		}
@@ -359,7 +437,7 @@ public class SentenceFinder {
 			//both sentences need to be noun complements, have at least 2 other matching entities
 			//or the evidence needs to have a synonym of the missing noun
 			if(!isNounComplement(claim) || !isNounComplement(evidenceSentence)) {
-				validSentence = containsSynonym(entityToBeSwapped[0], POS.NOUN, evidenceSentence, pipeline);
+				validSentence = containsSynonym(entityToBeSwapped[0], POS.NOUN, annotatedSentence, pipelines, context);
 				if(!validSentence) {
 				}
 			}
@@ -367,13 +445,13 @@ public class SentenceFinder {
 		
 		List<String[]> evidenceEntities = null;
 		if(validSentence && entityToBeSwapped[1] != "NOUN" && entityToBeSwapped[1] != null) {
-			if(isVerb(root, pipeline) && !(evidenceSentence.contains(root) || containsSynonym(root, POS.VERB, evidenceSentence, pipeline))) {
+			if(context.isRootVerb() && !(evidenceSentence.contains(root) || containsSynonym(root, POS.VERB, annotatedSentence, pipelines, context))) {
 				//if the evidence is missing a root verb and a named entity, then the evidence needs to have a synonym of the missing root
 				validSentence = false;
 			}
 			else {
 				//otherwise the entity can be swapped out for one of the same type
-				evidenceEntities = getNamedEntities(evidenceSentence, pipeline).stream().filter(arr -> !wikiTitle.contains(arr[0]))
+				evidenceEntities = annotatedSentence.getNamedEntities().stream().filter(arr -> !wikiTitle.contains(arr[0]))
 						.collect(Collectors.toList());
 				validSentence = false;
 				String alternative = altMap.get(entityToBeSwapped[1]);
@@ -389,20 +467,24 @@ public class SentenceFinder {
 				(claim.contains("born") || claim.contains("died") || claim.contains("dead"))) {
 			//if the sentence relates to birth or death, we can check to see if the sentence has wikipedia-formatted birth/death info 
 			if(evidenceEntities == null) {
-				evidenceEntities = getNamedEntities(evidenceSentence, pipeline).stream().filter(arr -> !wikiTitle.contains(arr[0]))
+				evidenceEntities = annotatedSentence.getNamedEntities().stream().filter(arr -> !wikiTitle.contains(arr[0]))
 					.collect(Collectors.toList());
 			}
-			validSentence = wikiBirthDeath(claim, evidenceEntities, evidenceSentence);
+			validSentence = wikiBirthDeath(evidenceEntities, lowerSentence, matches.firstStart(claimNE.size() + 1), matches.lastEnd(claimNE.size() + 2));
 		}
 
 		return validSentence;
 	}
 	
-	private static boolean containsSynonym(String word, POS pos, String sentence, StanfordCoreNLP pipeline) {
+	private static boolean containsSynonym(String word, POS pos, AnnotatedSentence sentence, PipelineRegistry pipelines, ClaimContext context) {
 		boolean contains = false;
 		String[] ignoredLemmas = {"have", "do", "be"};
-		List<String> sentLemmas = lemmatize(pipeline, sentence);
-		List<String> syns = getSynonyms(pipeline, word, pos, synonymDict);
+		List<String> sentLemmas = sentence.getLemmas();
+		List<String> syns = context.getSynonyms(word, pos);
+		if(syns == null) {
+			syns = getSynonyms(pipelines, word, pos, synonymIndex);
+			context.putSynonyms(word, pos, syns);
+		}
 		for(String syn : syns) {
 			if(sentLemmas.contains(syn) && !Arrays.asList(ignoredLemmas).contains(syn)) {
 				contains = true;
@@ -428,23 +510,27 @@ public class SentenceFinder {
 		return false;
 	}
 	
-	private static boolean containsValidRoot(String sentence, String root, StanfordCoreNLP pipeline) {
+	private static boolean containsValidRoot(String lowerSentence, PhraseMatcher.Matches matches, int rootPattern, ClaimContext context) {
 		String[] isWords = {"is", "was", "be", "are", "were", "has", "had", "have"};
-		String rootAlone = " " + root + " ";
+		String root = context.getRoot();
 		boolean validRoot = false;
-		if(isVerb(root, pipeline) && !Arrays.asList(isWords).contains(root) && 
-				(sentence.toLowerCase().contains(rootAlone) || sentence.toLowerCase().startsWith(root))) {
+		if(context.isRootVerb() && !Arrays.asList(isWords).contains(root) && 
+				(matches.contains(rootPattern) || lowerSentence.startsWith(root))) {
 			validRoot = true;
 		}
 		return validRoot;
 	}
 	
-	private static boolean wikiBirthDeath(String claim, List<String[]> SentNameEntities, String sentence) {
+	private static boolean wikiBirthDeath(List<String[]> SentNameEntities, String lowerSentence, int lrbStart, int rrbEnd) {
 		boolean edgeCase = false;
+		if(lrbStart < 0 || rrbEnd < 0) {
+			return false;
+		}
 		List<String> dates = SentNameEntities.stream().filter(ne -> ne[1].equals("DATE")).map(ne -> ne[0]).collect(Collectors.toList());
 		for(String date : dates) {
-			boolean parenDate = Pattern.compile("lrb(.*)" + date + "(.*)rrb").matcher(sentence.toLowerCase()).find();
-			if(parenDate) {
+			//the date has to sit between the first lrb and the last rrb of the sentence
+			int dateStart = lowerSentence.indexOf(date, lrbStart + 3);
+			if(dateStart >= 0 && dateStart + date.length() <= rrbEnd - 3) {
 				edgeCase = true;
 			}
 		}
@@ -452,153 +538,32 @@ public class SentenceFinder {
 		return edgeCase;
 	}
 	
-	private static ArrayList<String[]> getNamedEntities(String sentence, StanfordCoreNLP pipeline){
-
-		ArrayList<CoreLabel> tokens = getSentenceTokens(sentence, pipeline);
-		ArrayList<String[]> namedEntities = new ArrayList<String[]>();
-		String neTag = "";
-		String namedEntity = "";
-		boolean neActive = false;
-		for(int i = 0; i < tokens.size(); i++) {
-			String ne = tokens.get(i).get(NamedEntityTagAnnotation.class);
-			if(!neActive && !ne.equals("O")) {
-				neActive = true;
-				neTag = ne;
-				namedEntity += tokens.get(i).get(TextAnnotation.class);
-			}
-			else if(neActive && ne.equals(neTag)) {
-				namedEntity += " " + tokens.get(i).get(TextAnnotation.class);
-			}
-			else if(neActive && !ne.equals(neTag) && !ne.equals("O")) {
-				String[] neInfo = {namedEntity.toLowerCase(), neTag};
-				namedEntities.add(neInfo);		
-				namedEntity = "";
-				neTag = ne;
-				namedEntity = tokens.get(i).get(TextAnnotation.class);
-			}
-			else if(neActive && ne.equals("O")) {
-				neActive = false;
-				String[] neInfo = {namedEntity.toLowerCase(), neTag};
-				namedEntities.add(neInfo);		
-				namedEntity = "";
-				neTag = "";
-			}
+	private static WikiDocument fetchDocument(String key, int entry) throws IOException, JSONException {
+		WikiDocument wikiDoc = documentCache.get(key);
+		if(wikiDoc == null) {
+			wikiDoc = WikiDocument.fromJson(documentStore.read(wikiIndex.getFileId(entry), wikiIndex.getOffset(entry)));
+			documentCache.put(key, wikiDoc);
 		}
-		if(neActive) {
-			String[] neInfo = {namedEntity.toLowerCase(), neTag};
-			namedEntities.add(neInfo);
-		}
-		return namedEntities;
-   }
-
-	private static ArrayList<CoreLabel> getSentenceTokens(String sentence, StanfordCoreNLP pipeline){
-		Annotation document = new Annotation(sentence);
-	    pipeline.annotate(document);
-	    List<CoreMap> sentences = document.get(SentencesAnnotation.class);
-	    ArrayList<CoreLabel> tokens = new ArrayList<CoreLabel>();
-	    if(sentences.isEmpty()) {
-	    	return tokens;
-	    }
-	    CoreMap tokenSen = sentences.get(0);
-	    
-	    
-	    for (CoreLabel token: tokenSen.get(TokensAnnotation.class)) {
-	        tokens.add(token);
-	      }
-	    return tokens;
+		return wikiDoc;
 	}
 	
-	
-	private static ArrayList<Map<String, String>> getBackupDocs(ArrayList<String> backupDocumentKeys){
-		ArrayList<Map<String, String>> backupDocs = new ArrayList<Map<String, String>>();
+	private static ArrayList<WikiDocument> getBackupDocs(ArrayList<String> backupDocumentKeys){
+		ArrayList<WikiDocument> backupDocs = new ArrayList<WikiDocument>();
 		for(String key : backupDocumentKeys) {
 			try {
-				Map<String, String> backupDoc = new HashMap<String, String>();
-				Map<String, Object> fileInfo = wikiMap.get(key);
-                Path wikiDirPath = Paths.get(wikiDirName);
-                Path wikiListPath =  wikiDirPath.resolve(Paths.get((String)fileInfo.get("fileName")));
-                String wikiListName = wikiListPath.toString();
-
-				BufferedReader reader = new BufferedReader(new FileReader(wikiListName));
-				Long byteOffset = (Long) fileInfo.get("offset");
-				reader.skip(byteOffset);
-			    String wikiEntry = reader.readLine();
-			    JSONObject wikiJson = new JSONObject(wikiEntry);
-			    backupDoc.put("id", wikiJson.getString("id"));
-			    backupDoc.put("text", wikiJson.getString("text"));
-			    backupDoc.put("lines", wikiJson.getString("lines"));
-			    backupDocs.add(backupDoc);
-			    reader.close();
-			} catch (FileNotFoundException e) {
-				System.out.println("Could not open file  "+ key);
-				e.printStackTrace();
+				int entry = wikiIndex.find(key);
+				if(entry < 0) {
+					continue;
+				}
+			    backupDocs.add(fetchDocument(key, entry));
 			} catch (JSONException e) {
 				e.printStackTrace();
 			} catch (IOException e) {
+				System.out.println("Could not read file  "+ key);
 				e.printStackTrace();
 			}
 		}
 		return backupDocs;
 	}
 	
-	private static void getWikiMaps(String wikiDirName) {
-		wikiMap = new HashMap<String, Map <String, Object>>();
-//		disambiguationMap = new HashMap<String, ArrayList<String>>();
-//		lowercaseMap = new HashMap<String, String>();
-		
-		File wikiDir = new File(wikiDirName);
-		File[] wikiEntries = wikiDir.listFiles();
-		int filesProcessed = 0;
-		if (wikiEntries != null){
-			for (File wikiEntryList : wikiEntries) {
-				try {
-					System.out.print("*");
-					Scanner s = new Scanner(wikiEntryList);
-					long byteOffset = 0;
-					while(s.hasNextLine()) {
-						String wikiEntry = Normalizer.normalize(s.nextLine(), Normalizer.Form.NFC);
-					    JSONObject wikiJson = new JSONObject(wikiEntry);
-					    String id = wikiJson.getString("id");
-					    if(!id.isEmpty()) {
-					    	String fileName = wikiEntryList.getName();
-					    	Map<String, Object> docLocation = new HashMap<String, Object>();
-					    	docLocation.put("fileName", fileName);
-					    	docLocation.put("offset", byteOffset);
-							wikiMap.put(id, docLocation);
-//							lowercaseMap.put(id.toLowerCase(), id);
-//							
-//							int paren = id.indexOf("-LRB-");
-//							if(paren > 0 && !id.contains("disambiguation")) {
-//								String base = id.substring(0, paren-1);
-//								ArrayList<String> disambiguationChildren = new ArrayList<String>();
-//								if(disambiguationMap.containsKey(base)) {
-//									disambiguationChildren = disambiguationMap.get(base);
-//									disambiguationChildren.add(id);
-//									disambiguationMap.put(base, disambiguationChildren);
-//								}
-//								else {
-//									disambiguationChildren.add(id);
-//									disambiguationMap.put(base, disambiguationChildren);
-//								}
-//							}
-					    }
-					    byteOffset += wikiEntry.getBytes().length;
-						byteOffset += 1;
-					}
-					filesProcessed++;
-					if(filesProcessed % 10 == 0 || filesProcessed == 109) {
-						System.out.println("\nWiki processing "+filesProcessed+"/109 done.");
-					}
-						
-					s.close();
-				} catch (FileNotFoundException e) {
-					System.out.println("Could not open file  "+wikiEntryList.getName());
-					e.printStackTrace();
-				} catch (JSONException e) {
-					e.printStackTrace();
-				}
-			}
-		}
-	}
-	
 }
\ No newline at end of file
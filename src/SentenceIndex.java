@@ -0,0 +1,487 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.json.JSONException;
+
+/*
+ * Inverted index over every line of the wiki-dump for claims whose subject is not a page
+ * title. Each term's postings are varint pairs of (sentence id delta, term frequency), and
+ * search() ranks sentences with BM25, returning the top (wiki index entry, line) hits. Like
+ * the annotation store it records the dump size and entry count of the index it was built
+ * from and refuses to open against any other index.
+ *
+ * Layout: header, postings, pageStarts[p+1], pageEntries[p], sentenceLengths[s],
+ * termStarts[t+1], postingsStarts[t+1], docFreqs[t], term bytes, footer (table position,
+ * vocabulary position, page count, sentence count, term count, total length, magic).
+ * Sentence ids are numbered page by page, so a page's lines are pageStarts[page] onwards.
+ */
+public class SentenceIndex {
+
+	static final int MAGIC = 0x46455653;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 24;
+	static final int FOOTER_SIZE = 40;
+	static final float K1 = 1.2f;
+	static final float B = 0.75f;
+	static final int MAX_TERM_LENGTH = 40;
+	static final Set<String> STOP_WORDS = new HashSet<String>(Arrays.asList("a", "an", "the", "of", "and", "or", "in", "on",
+			"at", "to", "for", "by", "with", "from", "as", "is", "was", "are", "were", "be", "it", "its", "that", "this",
+			"which", "lrb", "rrb", "lsb", "rsb"));
+
+	private final FileChannel channel;
+	private final MappedByteBuffer table;
+	private final MappedByteBuffer vocabulary;
+	private final int pageCount;
+	private final int sentenceCount;
+	private final int termCount;
+	private final float averageLength;
+
+	private SentenceIndex(FileChannel channel, MappedByteBuffer table, MappedByteBuffer vocabulary, int pageCount,
+			int sentenceCount, int termCount, long totalLength) {
+		this.channel = channel;
+		this.table = table;
+		this.vocabulary = vocabulary;
+		this.pageCount = pageCount;
+		this.sentenceCount = sentenceCount;
+		this.termCount = termCount;
+		this.averageLength = sentenceCount == 0 ? 0 : (float) totalLength / sentenceCount;
+	}
+
+	public static SentenceIndex open(String indexFileName, WikiIndex wikiIndex) throws IOException {
+		FileChannel channel = FileChannel.open(new File(indexFileName).toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header, 0);
+			ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+			readFully(channel, footer, channel.size() - FOOTER_SIZE);
+			if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION || footer.getInt(36) != MAGIC) {
+				throw new IOException("Unrecognized sentence index format");
+			}
+			if(header.getLong(8) != wikiIndex.getDumpSize() || header.getInt(16) != wikiIndex.size()) {
+				throw new IOException("Sentence index " + indexFileName + " was built from a different wiki index");
+			}
+			long tablePos = footer.getLong(0);
+			long vocabularyPos = footer.getLong(8);
+			MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, tablePos, vocabularyPos - tablePos);
+			MappedByteBuffer vocabulary = channel.map(FileChannel.MapMode.READ_ONLY, vocabularyPos, channel.size() - FOOTER_SIZE - vocabularyPos);
+			return new SentenceIndex(channel, table, vocabulary, footer.getInt(16), footer.getInt(20), footer.getInt(24), footer.getLong(28));
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	// best k sentences for text by BM25, highest score first
+	public List<Hit> search(String text, int k) throws IOException {
+		List<String> terms = new ArrayList<String>(new HashSet<String>(tokenize(text)));
+		Accumulator scores = new Accumulator();
+		for(String term : terms) {
+			int termId = findTerm(term);
+			if(termId < 0) {
+				continue;
+			}
+			int docFreq = vocabulary.getInt(getDocFreqsPos() + 4 * termId);
+			float idf = (float) Math.log(1 + (sentenceCount - docFreq + 0.5) / (docFreq + 0.5));
+			byte[] postings = readPostings(termId);
+			int[] pos = {0};
+			int sentence = 0;
+			while(pos[0] < postings.length) {
+				sentence += readVarInt(postings, pos);
+				int frequency = readVarInt(postings, pos);
+				int length = table.getShort(getSentenceLengthsPos() + 2 * sentence) & 0xFFFF;
+				float norm = K1 * (1 - B + B * length / averageLength);
+				scores.add(sentence, idf * frequency * (K1 + 1) / (frequency + norm));
+			}
+		}
+
+		Comparator<Hit> byScore = new Comparator<Hit>() {
+			public int compare(Hit a, Hit b) {
+				return Float.compare(a.score, b.score);
+			}
+		};
+		PriorityQueue<Hit> best = new PriorityQueue<Hit>(Math.max(k, 1), byScore);
+		for(int i = 0; i < scores.keys.length; i++) {
+			if(scores.keys[i] < 0) {
+				continue;
+			}
+			if(best.size() < k) {
+				best.add(toHit(scores.keys[i], scores.values[i]));
+			} else if(k > 0 && scores.values[i] > best.peek().score) {
+				best.poll();
+				best.add(toHit(scores.keys[i], scores.values[i]));
+			}
+		}
+		List<Hit> hits = new ArrayList<Hit>(best);
+		Collections.sort(hits, Collections.reverseOrder(byScore));
+		return hits;
+	}
+
+	public int getSentenceCount() {
+		return sentenceCount;
+	}
+
+	public int getTermCount() {
+		return termCount;
+	}
+
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private Hit toHit(int sentence, float score) {
+		int low = 0;
+		int high = pageCount - 1;
+		while(low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if(table.getInt(4 * mid) <= sentence) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		int entry = table.getInt(4 * (pageCount + 1) + 4 * low);
+		return new Hit(entry, sentence - table.getInt(4 * low), score);
+	}
+
+	private int getSentenceLengthsPos() {
+		return 4 * (pageCount + 1) + 4 * pageCount;
+	}
+
+	private int getPostingsStartsPos() {
+		return 4 * (termCount + 1);
+	}
+
+	private int getDocFreqsPos() {
+		return getPostingsStartsPos() + 8 * (termCount + 1);
+	}
+
+	private int getTermBytesPos() {
+		return getDocFreqsPos() + 4 * termCount;
+	}
+
+	private int findTerm(String term) {
+		int low = 0;
+		int high = termCount - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = getTerm(mid).compareTo(term);
+			if(cmp < 0) {
+				low = mid + 1;
+			} else if(cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private String getTerm(int termId) {
+		int start = vocabulary.getInt(4 * termId);
+		int end = vocabulary.getInt(4 * (termId + 1));
+		byte[] termBytes = new byte[end - start];
+		for(int i = 0; i < termBytes.length; i++) {
+			termBytes[i] = vocabulary.get(getTermBytesPos() + start + i);
+		}
+		return new String(termBytes, StandardCharsets.UTF_8);
+	}
+
+	private byte[] readPostings(int termId) throws IOException {
+		long start = vocabulary.getLong(getPostingsStartsPos() + 8 * termId);
+		long end = vocabulary.getLong(getPostingsStartsPos() + 8 * (termId + 1));
+		ByteBuffer postings = ByteBuffer.allocate((int) (end - start));
+		readFully(channel, postings, HEADER_SIZE + start);
+		return postings.array();
+	}
+
+	// lowercased letter/digit runs, without stop words and overlong tokens
+	public static List<String> tokenize(String text) {
+		List<String> terms = new ArrayList<String>();
+		for(String token : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+			if(!token.isEmpty() && token.length() <= MAX_TERM_LENGTH && !STOP_WORDS.contains(token)) {
+				terms.add(token);
+			}
+		}
+		return terms;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, offset + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of sentence index");
+			}
+		}
+	}
+
+	private static int readVarInt(byte[] bytes, int[] pos) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = bytes[pos[0]++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while((b & 0x80) != 0);
+		return value;
+	}
+
+	private static String getSentenceTextFromWikiLines(String sentenceInfo) {
+		String sentence;
+		String[] tabs = sentenceInfo.split("\\t");
+		if(tabs[0].equals("0")) {
+			sentence = tabs.length > 1 ? tabs[1] : "";
+		} else {
+			sentence = tabs[0];
+		}
+		return sentence;
+	}
+
+	/*
+	 * Tokenizes every page in the index, in file/offset order so the dump is read front to
+	 * back, holding the compressed postings in memory until they are written out term by term.
+	 */
+	public static void build(final WikiIndex wikiIndex, DocumentStore documentStore, String indexFileName) throws IOException {
+		int entryCount = wikiIndex.size();
+		Integer[] fileOrder = new Integer[entryCount];
+		for(int i = 0; i < entryCount; i++) {
+			fileOrder[i] = i;
+		}
+		Arrays.sort(fileOrder, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				int cmp = Integer.compare(wikiIndex.getFileId(a), wikiIndex.getFileId(b));
+				return cmp != 0 ? cmp : Long.compare(wikiIndex.getOffset(a), wikiIndex.getOffset(b));
+			}
+		});
+
+		Map<String, PostingList> postingLists = new HashMap<String, PostingList>();
+		int[] pageStarts = new int[entryCount + 1];
+		int[] pageEntries = new int[entryCount];
+		short[] sentenceLengths = new short[1 << 20];
+		int pageCount = 0;
+		int sentenceCount = 0;
+		long totalLength = 0;
+		for(int k = 0; k < entryCount; k++) {
+			int entry = fileOrder[k];
+			WikiDocument wikiDoc;
+			try {
+				wikiDoc = WikiDocument.fromJson(documentStore.read(wikiIndex.getFileId(entry), wikiIndex.getOffset(entry)));
+			} catch (JSONException e) {
+				e.printStackTrace();
+				continue;
+			}
+			pageStarts[pageCount] = sentenceCount;
+			pageEntries[pageCount] = entry;
+			pageCount++;
+			for(String wikiLine : wikiDoc.getSentences()) {
+				List<String> terms = tokenize(getSentenceTextFromWikiLines(wikiLine));
+				Map<String, Integer> frequencies = new HashMap<String, Integer>();
+				for(String term : terms) {
+					Integer frequency = frequencies.get(term);
+					frequencies.put(term, frequency == null ? 1 : frequency + 1);
+				}
+				for(Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+					PostingList postingList = postingLists.get(frequency.getKey());
+					if(postingList == null) {
+						postingList = new PostingList();
+						postingLists.put(frequency.getKey(), postingList);
+					}
+					postingList.add(sentenceCount, frequency.getValue());
+				}
+				if(sentenceCount == sentenceLengths.length) {
+					sentenceLengths = Arrays.copyOf(sentenceLengths, sentenceCount * 2);
+				}
+				sentenceLengths[sentenceCount++] = (short) Math.min(terms.size(), 0xFFFF);
+				totalLength += terms.size();
+			}
+			if((k + 1) % 100000 == 0) {
+				System.out.println("Indexed " + (k + 1) + "/" + entryCount + " pages.");
+			}
+		}
+		pageStarts[pageCount] = sentenceCount;
+		String[] terms = postingLists.keySet().toArray(new String[0]);
+		Arrays.sort(terms);
+
+		File tempFile = new File(indexFileName + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 20));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(wikiIndex.getDumpSize());
+			out.writeInt(entryCount);
+			out.writeInt(0);
+
+			long[] postingsStarts = new long[terms.length + 1];
+			for(int i = 0; i < terms.length; i++) {
+				PostingList postingList = postingLists.get(terms[i]);
+				out.write(postingList.data, 0, postingList.length);
+				postingsStarts[i + 1] = postingsStarts[i] + postingList.length;
+			}
+			long tablePos = HEADER_SIZE + postingsStarts[terms.length];
+			for(int i = 0; i <= pageCount; i++) {
+				out.writeInt(pageStarts[i]);
+			}
+			for(int i = 0; i < pageCount; i++) {
+				out.writeInt(pageEntries[i]);
+			}
+			for(int i = 0; i < sentenceCount; i++) {
+				out.writeShort(sentenceLengths[i]);
+			}
+			long vocabularyPos = tablePos + 4L * (pageCount + 1) + 4L * pageCount + 2L * sentenceCount;
+			byte[][] termBytes = new byte[terms.length][];
+			int start = 0;
+			for(int i = 0; i < terms.length; i++) {
+				termBytes[i] = terms[i].getBytes(StandardCharsets.UTF_8);
+				out.writeInt(start);
+				start += termBytes[i].length;
+			}
+			out.writeInt(start);
+			for(long postingsStart : postingsStarts) {
+				out.writeLong(postingsStart);
+			}
+			for(String term : terms) {
+				out.writeInt(postingLists.get(term).docFreq);
+			}
+			for(byte[] bytes : termBytes) {
+				out.write(bytes);
+			}
+			out.writeLong(tablePos);
+			out.writeLong(vocabularyPos);
+			out.writeInt(pageCount);
+			out.writeInt(sentenceCount);
+			out.writeInt(terms.length);
+			out.writeLong(totalLength);
+			out.writeInt(MAGIC);
+		} finally {
+			out.close();
+		}
+		File indexFile = new File(indexFileName);
+		if(indexFile.exists()) {
+			indexFile.delete();
+		}
+		if(!tempFile.renameTo(indexFile)) {
+			throw new IOException("Could not move " + tempFile.getName() + " to " + indexFileName);
+		}
+	}
+
+	public static class Hit {
+		private final int entry;
+		private final int line;
+		private final float score;
+
+		private Hit(int entry, int line, float score) {
+			this.entry = entry;
+			this.line = line;
+			this.score = score;
+		}
+
+		public int getEntry() {
+			return entry;
+		}
+
+		public int getLine() {
+			return line;
+		}
+
+		public float getScore() {
+			return score;
+		}
+	}
+
+	// build-time postings for one term, varint encoded as they arrive
+	private static class PostingList {
+		private byte[] data = new byte[8];
+		private int length;
+		private int lastSentence;
+		private int docFreq;
+
+		void add(int sentence, int frequency) {
+			if(length + 10 > data.length) {
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+			writeVarInt(sentence - lastSentence);
+			writeVarInt(frequency);
+			lastSentence = sentence;
+			docFreq++;
+		}
+
+		private void writeVarInt(int value) {
+			while((value & ~0x7F) != 0) {
+				data[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			data[length++] = (byte) value;
+		}
+	}
+
+	// open addressing sentence -> score table for one search, keys of -1 are empty
+	private static class Accumulator {
+		private int[] keys = newKeys(1 << 10);
+		private float[] values = new float[1 << 10];
+		private int size;
+
+		void add(int key, float value) {
+			if(2 * (size + 1) > keys.length) {
+				grow();
+			}
+			int i = slot(keys, key);
+			if(keys[i] < 0) {
+				keys[i] = key;
+				size++;
+			}
+			values[i] += value;
+		}
+
+		private void grow() {
+			int[] oldKeys = keys;
+			float[] oldValues = values;
+			keys = newKeys(oldKeys.length * 2);
+			values = new float[oldKeys.length * 2];
+			for(int i = 0; i < oldKeys.length; i++) {
+				if(oldKeys[i] >= 0) {
+					int j = slot(keys, oldKeys[i]);
+					keys[j] = oldKeys[i];
+					values[j] = oldValues[i];
+				}
+			}
+		}
+
+		private static int slot(int[] keys, int key) {
+			int mask = keys.length - 1;
+			int hash = key * 0x9E3779B9;
+			int i = (hash ^ (hash >>> 16)) & mask;
+			while(keys[i] >= 0 && keys[i] != key) {
+				i = (i + 1) & mask;
+			}
+			return i;
+		}
+
+		private static int[] newKeys(int capacity) {
+			int[] keys = new int[capacity];
+			Arrays.fill(keys, -1);
+			return keys;
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/*
+ * Offline job: tokenizes every line of the wiki-dump once and writes the BM25 sentence index
+ * to sentenceIndexFileName, which FEVER_OSU searches when findDocuments turns up no evidence.
+ * Rerun whenever the wiki-dump (and so the wiki index) changes.
+ */
+public class SentenceIndexBuilder {
+
+	static String wikiDirName = "wiki-dump";
+	static String wikiIndexFileName = "wikiIndex.bin";
+	static String sentenceIndexFileName = "wikiSentences.bin";
+
+	public static void main(String[] args) {
+		DateTimeFormatter dtf = DateTimeFormatter.ofPattern("HH:mm:ss");  
+	    System.out.println("Beginning sentence indexing. Time: "+dtf.format(LocalDateTime.now()));
+		WikiIndex wikiIndex;
+	    try {
+	    	wikiIndex = WikiIndex.load(wikiDirName, wikiIndexFileName);
+	    } catch (IOException e) {
+	    	System.out.println("Could not load wiki index "+wikiIndexFileName);
+	    	e.printStackTrace();
+	    	return;
+	    }
+		System.out.println("wikiIndex loaded. Time: "+dtf.format(LocalDateTime.now()));
+		DocumentStore documentStore = new DocumentStore(wikiDirName, wikiIndex.getFileNames());
+		try {
+			SentenceIndex.build(wikiIndex, documentStore, sentenceIndexFileName);
+			System.out.println("Sentence index written to " + sentenceIndexFileName + ". Time: "+dtf.format(LocalDateTime.now()));
+		} catch (IOException e) {
+			System.out.println("Could not write sentence index "+sentenceIndexFileName);
+			e.printStackTrace();
+		} finally {
+			documentStore.close();
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.mit.jwi.item.POS;
+
+/*
+ * Immutable lemma -> first-sense synset members table read from the WordNet files in dict/.
+ * For each part of speech, index.<pos> gives every lemma's first synset offset and
+ * data.<pos> gives that synset's words, which are stored once as int ids into a shared
+ * word list. <pos>.exc maps irregular forms onto their base lemma for lemmas that are not
+ * indexed themselves. After load() nothing is written, so the same index can be read from
+ * any number of claim threads.
+ */
+public class SynonymIndex {
+
+	private final Map<POS, Map<String, Integer>> firstSynsets;
+	private final Map<POS, Map<String, String>> exceptions;
+	private final int[] synsetStarts;
+	private final int[] synsetMembers;
+	private final String[] words;
+
+	private SynonymIndex(Map<POS, Map<String, Integer>> firstSynsets, Map<POS, Map<String, String>> exceptions,
+			int[] synsetStarts, int[] synsetMembers, String[] words) {
+		this.firstSynsets = firstSynsets;
+		this.exceptions = exceptions;
+		this.synsetStarts = synsetStarts;
+		this.synsetMembers = synsetMembers;
+		this.words = words;
+	}
+
+	// returns null when the lemma has no synset for pos, matching a failed dictionary lookup
+	public List<String> getSynonyms(String lemma, POS pos) {
+		Map<String, Integer> lemmaSynsets = firstSynsets.get(pos);
+		if(lemmaSynsets == null) {
+			return null;
+		}
+		String key = toKey(lemma);
+		Integer synset = lemmaSynsets.get(key);
+		if(synset == null) {
+			String base = exceptions.get(pos).get(key);
+			synset = base == null ? null : lemmaSynsets.get(base);
+			if(synset == null) {
+				return null;
+			}
+		}
+		List<String> synonyms = new ArrayList<String>(synsetStarts[synset + 1] - synsetStarts[synset]);
+		for(int i = synsetStarts[synset]; i < synsetStarts[synset + 1]; i++) {
+			synonyms.add(words[synsetMembers[i]]);
+		}
+		return synonyms;
+	}
+
+	public int size() {
+		return synsetStarts.length - 1;
+	}
+
+	private static String toKey(String lemma) {
+		return lemma.trim().toLowerCase().replace(' ', '_');
+	}
+
+	private static String getFileSuffix(POS pos) {
+		switch(pos) {
+		case NOUN:
+			return "noun";
+		case VERB:
+			return "verb";
+		case ADJECTIVE:
+			return "adj";
+		default:
+			return "adv";
+		}
+	}
+
+	public static SynonymIndex load(String dictDirName) throws IOException {
+		Map<POS, Map<String, Integer>> firstSynsets = new HashMap<POS, Map<String, Integer>>();
+		Map<POS, Map<String, String>> exceptions = new HashMap<POS, Map<String, String>>();
+		List<String> words = new ArrayList<String>();
+		Map<String, Integer> wordIds = new HashMap<String, Integer>();
+		int[] synsetStarts = new int[1024];
+		int[] synsetMembers = new int[4096];
+		int synsetCount = 0;
+		int memberCount = 0;
+
+		for(POS pos : POS.values()) {
+			String suffix = getFileSuffix(pos);
+			Map<String, String> posExceptions = new HashMap<String, String>();
+			exceptions.put(pos, posExceptions);
+			File excFile = new File(dictDirName, suffix + ".exc");
+			if(excFile.exists()) {
+				for(String line : Files.readAllLines(excFile.toPath(), StandardCharsets.ISO_8859_1)) {
+					String[] fields = line.split(" ");
+					if(fields.length > 1 && !posExceptions.containsKey(fields[0])) {
+						posExceptions.put(fields[0], fields[1]);
+					}
+				}
+			}
+
+			File indexFile = new File(dictDirName, "index." + suffix);
+			File dataFile = new File(dictDirName, "data." + suffix);
+			if(!indexFile.exists() || !dataFile.exists()) {
+				continue;
+			}
+			byte[] data = Files.readAllBytes(dataFile.toPath());
+			Map<String, Integer> lemmaSynsets = new HashMap<String, Integer>();
+			Map<Long, Integer> synsetIds = new HashMap<Long, Integer>();
+			for(String line : Files.readAllLines(indexFile.toPath(), StandardCharsets.ISO_8859_1)) {
+				if(line.startsWith(" ")) {
+					continue;
+				}
+				// lemma pos synset_cnt p_cnt [ptr_symbol...] sense_cnt tagsense_cnt synset_offset [synset_offset...]
+				String[] fields = line.trim().split(" ");
+				int pointerCount = Integer.parseInt(fields[3]);
+				long offset = Long.parseLong(fields[6 + pointerCount]);
+				Integer synset = synsetIds.get(offset);
+				if(synset == null) {
+					String[] members = readSynsetWords(data, (int) offset);
+					synset = synsetCount;
+					synsetIds.put(offset, synset);
+					if(synsetCount + 2 > synsetStarts.length) {
+						synsetStarts = Arrays.copyOf(synsetStarts, synsetStarts.length * 2);
+					}
+					if(memberCount + members.length > synsetMembers.length) {
+						synsetMembers = Arrays.copyOf(synsetMembers, Math.max(synsetMembers.length * 2, memberCount + members.length));
+					}
+					synsetStarts[synsetCount] = memberCount;
+					for(String member : members) {
+						Integer wordId = wordIds.get(member);
+						if(wordId == null) {
+							wordId = words.size();
+							words.add(member);
+							wordIds.put(member, wordId);
+						}
+						synsetMembers[memberCount++] = wordId;
+					}
+					synsetCount++;
+					synsetStarts[synsetCount] = memberCount;
+				}
+				lemmaSynsets.put(fields[0], synset);
+			}
+			firstSynsets.put(pos, lemmaSynsets);
+		}
+		return new SynonymIndex(firstSynsets, exceptions, Arrays.copyOf(synsetStarts, synsetCount + 1),
+				Arrays.copyOf(synsetMembers, memberCount), words.toArray(new String[0]));
+	}
+
+	// synset_offset lex_filenum ss_type w_cnt word lex_id [word lex_id...] p_cnt ...
+	private static String[] readSynsetWords(byte[] data, int offset) {
+		int end = offset;
+		while(end < data.length && data[end] != '\n') {
+			end++;
+		}
+		String[] fields = new String(data, offset, end - offset, StandardCharsets.ISO_8859_1).split(" ");
+		int wordCount = Integer.parseInt(fields[3], 16);
+		String[] members = new String[wordCount];
+		for(int i = 0; i < wordCount; i++) {
+			String word = fields[4 + 2 * i];
+			int marker = word.indexOf('(');
+			if(marker > 0 && word.endsWith(")")) {
+				word = word.substring(0, marker);
+			}
+			members[i] = word.replace("_", " ");
+		}
+		return members;
+	}
+
+}
@@ -0,0 +1,149 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.apache.commons.lang3.StringUtils;
+
+/*
+ * Case-folded title dictionary stored in the wiki index. Every page title and disambiguation
+ * base is kept as its lowercased UTF-8 key in one sorted array, so a lookup walks the key a
+ * byte at a time and narrows the matching range like a trie, finding every title that equals
+ * the phrase ignoring case in a single traversal. Each key refers back to a title entry
+ * (ref >= 0) or a disambiguation base (ref = -(base + 1)). The same cursor can be fed a
+ * tokenized claim one token at a time to spot every title it contains.
+ */
+public class TitleDictionary {
+
+	private final ByteBuffer buffer;
+	private final int size;
+	private final int keyStartsPos;
+	private final int refsPos;
+	private final int keyBytesPos;
+
+	public TitleDictionary(ByteBuffer buffer, int size, int keyStartsPos, int refsPos, int keyBytesPos) {
+		this.buffer = buffer;
+		this.size = size;
+		this.keyStartsPos = keyStartsPos;
+		this.refsPos = refsPos;
+		this.keyBytesPos = keyBytesPos;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// refs of all titles and bases equal to wikiKey ignoring case, titles first
+	public int[] find(String wikiKey) {
+		Cursor cursor = new Cursor();
+		cursor.narrow(fold(wikiKey));
+		int end = cursor.low;
+		while(end < cursor.high && keyLength(end) == cursor.depth) {
+			end++;
+		}
+		int[] refs = new int[end - cursor.low];
+		for(int i = cursor.low; i < end; i++) {
+			refs[i - cursor.low] = buffer.getInt(refsPos + 4 * i);
+		}
+		return refs;
+	}
+
+	/*
+	 * Greedy longest-match scan of a tokenized text. begins and ends are the character offsets
+	 * of the tokens. From each token the cursor is extended a token at a time, including the
+	 * text between tokens so spacing and brackets are normalized the way wiki keys are, and the
+	 * longest span that is a whole title or disambiguation base is kept before scanning on
+	 * after it. Spans are returned as they appear in text.
+	 */
+	public ArrayList<String> spot(String text, int[] begins, int[] ends) {
+		ArrayList<String> spans = new ArrayList<String>();
+		int start = 0;
+		while(start < begins.length) {
+			Cursor cursor = new Cursor();
+			int longest = -1;
+			int from = begins[start];
+			for(int end = start; end < ends.length && cursor.advance(text.substring(from, ends[end])); end++) {
+				if(cursor.isKey()) {
+					longest = end;
+				}
+				from = ends[end];
+			}
+			if(longest >= 0) {
+				spans.add(text.substring(begins[start], ends[longest]));
+				start = longest + 1;
+			} else {
+				start++;
+			}
+		}
+		return spans;
+	}
+
+	// first position in [low, high) whose byte at depth is at least b; keys ending before depth sort first
+	private int lowerBound(int low, int high, int depth, int b) {
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(byteAt(mid, depth) < b) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private int byteAt(int i, int depth) {
+		int start = buffer.getInt(keyStartsPos + 4 * i);
+		if(buffer.getInt(keyStartsPos + 4 * (i + 1)) - start <= depth) {
+			return -1;
+		}
+		return buffer.get(keyBytesPos + start + depth) & 0xFF;
+	}
+
+	private int keyLength(int i) {
+		return buffer.getInt(keyStartsPos + 4 * (i + 1)) - buffer.getInt(keyStartsPos + 4 * i);
+	}
+
+	public static String toWikiKey(String title) {
+		return StringUtils.capitalize(normalize(title));
+	}
+
+	private static String normalize(String title) {
+		return title.replace(" ", "_").replace("(", "-LRB-").replace(")", "-RRB-").replace("]", "-RSB-").replace("[", "-LSB-");
+	}
+
+	public static byte[] fold(String title) {
+		StringBuilder folded = new StringBuilder(title.length());
+		for(int i = 0; i < title.length(); ) {
+			int codePoint = title.codePointAt(i);
+			folded.appendCodePoint(Character.toLowerCase(codePoint));
+			i += Character.charCount(codePoint);
+		}
+		return folded.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	// range of keys starting with everything fed in so far
+	private class Cursor {
+		private int low = 0;
+		private int high = size;
+		private int depth = 0;
+
+		private boolean advance(String text) {
+			return narrow(fold(normalize(text)));
+		}
+
+		private boolean narrow(byte[] bytes) {
+			for(int i = 0; i < bytes.length && low < high; i++) {
+				int b = bytes[i] & 0xFF;
+				low = lowerBound(low, high, depth, b);
+				high = lowerBound(low, high, depth, b + 1);
+				depth++;
+			}
+			return low < high;
+		}
+
+		// keys ending at depth sort first, so the range holds a whole key only at low
+		private boolean isKey() {
+			return low < high && keyLength(low) == depth;
+		}
+	}
+
+}
@@ -0,0 +1,10 @@
+/*
+ * How candidate pages are found for a claim. PARSE walks the dependency and constituency
+ * parses (getAllTopics), SPOT runs a longest-match scan of the claim tokens against the title
+ * dictionary without needing a parse, and UNION uses both.
+ */
+public enum TopicMode {
+	PARSE,
+	SPOT,
+	UNION
+}
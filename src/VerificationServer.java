@@ -0,0 +1,150 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.json.JSONException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * Resident claim verification over HTTP on the loopback interface. All pipelines are built
+ * when the server starts, one registry per worker, so a request only pays for its own claims.
+ * POST /verify takes claims in the claims file format, one JSON object per line, and answers
+ * with one result line per claim in the same order; a claim that fails gets an empty line.
+ * GET /metrics answers with the current metrics in the Prometheus text format.
+ */
+public class VerificationServer {
+
+	private final int port;
+	private final int numWorkers;
+	private final Supplier<PipelineRegistry> pipelineFactory;
+	private final ClaimExecutor.ClaimProcessor processor;
+	private final Metrics metrics;
+	private final BlockingQueue<PipelineRegistry> pipelines;
+	private final AtomicInteger claimCount = new AtomicInteger();
+	private HttpServer server;
+	private ExecutorService workers;
+
+	public VerificationServer(int port, int numWorkers, Supplier<PipelineRegistry> pipelineFactory, ClaimExecutor.ClaimProcessor processor, Metrics metrics) {
+		this.port = port;
+		this.numWorkers = numWorkers;
+		this.pipelineFactory = pipelineFactory;
+		this.processor = processor;
+		this.metrics = metrics;
+		this.pipelines = new ArrayBlockingQueue<PipelineRegistry>(numWorkers);
+	}
+
+	public void start() throws IOException {
+		for(int i = 0; i < numWorkers; i++) {
+			pipelines.add(pipelineFactory.get());
+			System.out.println("Pipelines ready for worker " + (i + 1) + "/" + numWorkers + ".");
+		}
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/verify", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				handleVerify(exchange);
+			}
+		});
+		server.createContext("/metrics", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				handleMetrics(exchange);
+			}
+		});
+		workers = Executors.newFixedThreadPool(numWorkers);
+		server.setExecutor(workers);
+		server.start();
+		System.out.println("Verification server listening on " + server.getAddress() + ".");
+	}
+
+	public void stop() {
+		server.stop(0);
+		workers.shutdown();
+	}
+
+	private void handleVerify(HttpExchange exchange) throws IOException {
+		try {
+			if(!exchange.getRequestMethod().equals("POST")) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				respond(exchange, 405, "text/plain", "Claims must be POSTed\n");
+				return;
+			}
+			String[] lines = new String(readBody(exchange.getRequestBody()), StandardCharsets.UTF_8).split("\n");
+			StringBuilder results = new StringBuilder();
+			PipelineRegistry registry = pipelines.take();
+			try {
+				for(String line : lines) {
+					if(line.trim().isEmpty()) {
+						continue;
+					}
+					results.append(verify(registry, line)).append('\n');
+				}
+			} finally {
+				pipelines.put(registry);
+			}
+			respond(exchange, 200, "application/x-ndjson", results.toString());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			respond(exchange, 503, "text/plain", "Server is shutting down\n");
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void handleMetrics(HttpExchange exchange) throws IOException {
+		try {
+			if(!exchange.getRequestMethod().equals("GET")) {
+				exchange.getResponseHeaders().set("Allow", "GET");
+				respond(exchange, 405, "text/plain", "Metrics must be fetched with GET\n");
+				return;
+			}
+			respond(exchange, 200, "text/plain; version=0.0.4", metrics.toString());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private String verify(PipelineRegistry registry, String line) {
+		int claimNumber = claimCount.incrementAndGet();
+		try {
+			return processor.process(registry, ClaimSource.parse(line), claimNumber);
+		} catch (JSONException e) {
+			System.out.println("Could not read claim " + claimNumber + ": " + e.getMessage());
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.out.println("Something went wrong with processeing claim " + claimNumber + ". Skipping");
+		}
+		return "";
+	}
+
+	private static byte[] readBody(InputStream in) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] chunk = new byte[8192];
+		int read;
+		while((read = in.read(chunk)) > 0) {
+			body.write(chunk, 0, read);
+		}
+		return body.toByteArray();
+	}
+
+	private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+}
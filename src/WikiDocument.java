@@ -0,0 +1,54 @@
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/*
+ * A parsed wiki-dump record. The lines field is split into its numbered sentence entries once,
+ * when the record is parsed, so cached documents can be reused by findSentences as-is.
+ */
+public class WikiDocument {
+
+	private final String id;
+	private final String text;
+	private final String lines;
+	private final String[] sentences;
+	private final long bytes;
+
+	public WikiDocument(String id, String text, String lines) {
+		this.id = id;
+		this.text = text;
+		this.lines = lines;
+		this.sentences = lines.split("\\n\\d*\\t");
+		long chars = id.length() + text.length() + lines.length();
+		for(String sentence : sentences) {
+			chars += sentence.length();
+		}
+		// rough heap footprint: two bytes per char plus per-object overhead
+		this.bytes = 2 * chars + 40L * (sentences.length + 4);
+	}
+
+	public static WikiDocument fromJson(String wikiEntry) throws JSONException {
+		JSONObject wikiJson = new JSONObject(wikiEntry);
+		return new WikiDocument(wikiJson.getString("id"), wikiJson.getString("text"), wikiJson.getString("lines"));
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public String getLines() {
+		return lines;
+	}
+
+	public String[] getSentences() {
+		return sentences;
+	}
+
+	public long estimateBytes() {
+		return bytes;
+	}
+
+}
@@ -0,0 +1,654 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/*
+ * Build-once, memory-mapped replacement for the wikiMap/lowercaseMap/disambiguationMap trio.
+ * The wiki-dump is scanned a single time and written to indexFileName as a title table sorted
+ * by UTF-8 bytes with file/offset columns. Every later run maps the file read-only and binary
+ * searches it in place, through WikiLocationIndex for exact titles and directly for
+ * disambiguation bases, so processes sharing an index share its pages and load it in constant
+ * time. Case-insensitive lookups go through the TitleDictionary section.
+ *
+ * Layout: header, file names, titleStarts[n+1], fileIds[n], offsets[n], baseStarts[b+1],
+ * childStarts[b+1], children[c], dictKeyStarts[n+b+1], dictRefs[n+b], title bytes, base bytes,
+ * dict key bytes.
+ */
+public class WikiIndex {
+
+	static final int MAGIC = 0x46455649;
+	static final int VERSION = 4;
+	static final long SCAN_WINDOW = 1L << 30;
+
+	private final MappedByteBuffer buffer;
+	private final WikiLocationIndex locations;
+	private final TitleDictionary titles;
+	private final int entryCount;
+	private final int baseCount;
+	private final int baseStartsPos;
+	private final int childStartsPos;
+	private final int childrenPos;
+	private final int baseBytesPos;
+
+	private WikiIndex(MappedByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		int pos = 0;
+		if(buffer.getInt(pos) != MAGIC || buffer.getInt(pos + 4) != VERSION) {
+			throw new IOException("Unrecognized wiki index format");
+		}
+		pos += 16;
+		int fileCount = buffer.getInt(pos);
+		pos += 4;
+		String[] fileNames = new String[fileCount];
+		for(int i = 0; i < fileCount; i++) {
+			int length = buffer.getShort(pos) & 0xFFFF;
+			fileNames[i] = decode(pos + 2, length);
+			pos += 2 + length;
+		}
+		entryCount = buffer.getInt(pos);
+		baseCount = buffer.getInt(pos + 4);
+		int childCount = buffer.getInt(pos + 8);
+		int titleBytesLength = buffer.getInt(pos + 12);
+		int dictKeyBytesLength = buffer.getInt(pos + 16);
+		pos += 20;
+		int titleStartsPos = pos;
+		int fileIdsPos = titleStartsPos + 4 * (entryCount + 1);
+		int offsetsPos = fileIdsPos + 2 * entryCount;
+		baseStartsPos = offsetsPos + 8 * entryCount;
+		childStartsPos = baseStartsPos + 4 * (baseCount + 1);
+		childrenPos = childStartsPos + 4 * (baseCount + 1);
+		int dictSize = entryCount + baseCount;
+		int dictKeyStartsPos = childrenPos + 4 * childCount;
+		int dictRefsPos = dictKeyStartsPos + 4 * (dictSize + 1);
+		int titleBytesPos = dictRefsPos + 4 * dictSize;
+		baseBytesPos = titleBytesPos + titleBytesLength;
+		int dictKeyBytesPos = baseBytesPos + buffer.getInt(baseStartsPos + 4 * baseCount);
+		if(dictKeyBytesPos + dictKeyBytesLength != buffer.limit()) {
+			throw new IOException("Truncated wiki index");
+		}
+		titles = new TitleDictionary(buffer, dictSize, dictKeyStartsPos, dictRefsPos, dictKeyBytesPos);
+		locations = new WikiLocationIndex(fileNames, buffer, entryCount, titleStartsPos, fileIdsPos, offsetsPos, titleBytesPos);
+	}
+
+	public static WikiIndex load(String wikiDirName, String indexFileName) throws IOException {
+		File indexFile = new File(indexFileName);
+		long dumpSize = getDumpSize(wikiDirName);
+		if(!indexFile.exists() || readDumpSize(indexFile) != dumpSize) {
+			System.out.println("No current wiki index at " + indexFileName + ". Building from " + wikiDirName + ".");
+			build(wikiDirName, indexFileName);
+		}
+		return open(indexFileName);
+	}
+
+	public static WikiIndex open(String indexFileName) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(indexFileName, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Wiki index " + indexFileName + " is too large to map");
+			}
+			return new WikiIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			file.close();
+		}
+	}
+
+	public int size() {
+		return entryCount;
+	}
+
+	public long getDumpSize() {
+		return buffer.getLong(8);
+	}
+
+	public boolean containsTitle(String title) {
+		return find(title) >= 0;
+	}
+
+	public int find(String title) {
+		return locations.get(title);
+	}
+
+	public WikiLocationIndex getLocations() {
+		return locations;
+	}
+
+	public TitleDictionary getTitleDictionary() {
+		return titles;
+	}
+
+	/*
+	 * Resolves a noun phrase to its wiki key in one dictionary traversal: spaces and brackets are
+	 * normalized the way the dump writes them, an exact page or disambiguation base is returned
+	 * as is, otherwise the first page equal ignoring case is returned as the canonical id.
+	 * Returns null when nothing matches.
+	 */
+	public String resolveTitle(String title) {
+		String wikiKey = TitleDictionary.toWikiKey(title);
+		int[] refs = titles.find(wikiKey);
+		String canonical = null;
+		for(int ref : refs) {
+			if(ref >= 0) {
+				String candidate = getTitle(ref);
+				if(candidate.equals(wikiKey)) {
+					return wikiKey;
+				}
+				if(canonical == null) {
+					canonical = candidate;
+				}
+			} else if(getBase(-ref - 1).equals(wikiKey)) {
+				return wikiKey;
+			}
+		}
+		return canonical;
+	}
+
+	public String getTitle(int entry) {
+		return locations.getTitle(entry);
+	}
+
+	public String getFileName(int entry) {
+		return locations.getFileName(entry);
+	}
+
+	public int getFileId(int entry) {
+		return locations.getFileId(entry);
+	}
+
+	public String[] getFileNames() {
+		return locations.getFileNames();
+	}
+
+	public long getOffset(int entry) {
+		return locations.getOffset(entry);
+	}
+
+	public boolean containsDisambiguation(String base) {
+		return findBase(base) >= 0;
+	}
+
+	public ArrayList<String> getDisambiguationChildren(String base) {
+		int baseIndex = findBase(base);
+		if(baseIndex < 0) {
+			return null;
+		}
+		int start = buffer.getInt(childStartsPos + 4 * baseIndex);
+		int end = buffer.getInt(childStartsPos + 4 * (baseIndex + 1));
+		ArrayList<String> children = new ArrayList<String>(end - start);
+		for(int i = start; i < end; i++) {
+			children.add(getTitle(buffer.getInt(childrenPos + 4 * i)));
+		}
+		return children;
+	}
+
+	private String getBase(int baseIndex) {
+		int start = buffer.getInt(baseStartsPos + 4 * baseIndex);
+		int end = buffer.getInt(baseStartsPos + 4 * (baseIndex + 1));
+		return decode(baseBytesPos + start, end - start);
+	}
+
+	private int findBase(String base) {
+		int low = 0;
+		int high = baseCount - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			int start = buffer.getInt(baseStartsPos + 4 * mid);
+			int end = buffer.getInt(baseStartsPos + 4 * (mid + 1));
+			int cmp = decode(baseBytesPos + start, end - start).compareTo(base);
+			if(cmp < 0) {
+				low = mid + 1;
+			} else if(cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private String decode(int pos, int length) {
+		byte[] bytes = new byte[length];
+		for(int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(pos + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static long getDumpSize(String wikiDirName) {
+		long dumpSize = 0;
+		File[] wikiEntries = new File(wikiDirName).listFiles();
+		if(wikiEntries != null) {
+			for(File wikiEntryList : wikiEntries) {
+				dumpSize += wikiEntryList.length();
+			}
+		}
+		return dumpSize;
+	}
+
+	private static long readDumpSize(File indexFile) {
+		try {
+			RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+			try {
+				if(file.readInt() != MAGIC || file.readInt() != VERSION) {
+					return -1;
+				}
+				return file.readLong();
+			} finally {
+				file.close();
+			}
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	private static int toDictIndex(int ref, int titleCount) {
+		return ref >= 0 ? ref : titleCount - ref - 1;
+	}
+
+	private static int compareBytes(byte[] a, byte[] b) {
+		int length = Math.min(a.length, b.length);
+		for(int i = 0; i < length; i++) {
+			int cmp = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if(cmp != 0) {
+				return cmp;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	/*
+	 * Scans the dump files on parallel threads. Each file is mapped and split on newlines, and
+	 * only the leading "id" value of each line is decoded; the offset is the line's position in
+	 * the mapped file. Files are merged in directory order afterwards, so a title repeated later
+	 * in the dump still overrides the earlier one.
+	 */
+	public static void build(String wikiDirName, String indexFileName) throws IOException {
+		final File[] wikiEntries = new File(wikiDirName).listFiles();
+		WikiLocationIndex.Builder locations = new WikiLocationIndex.Builder();
+		Map<String, ArrayList<String>> disambiguations = new LinkedHashMap<String, ArrayList<String>>();
+		if (wikiEntries != null){
+			final FileEntries[] fileEntries = new FileEntries[wikiEntries.length];
+			final AtomicInteger next = new AtomicInteger();
+			final AtomicInteger filesProcessed = new AtomicInteger();
+			List<Thread> workers = new ArrayList<Thread>();
+			for(int i = 0; i < Math.min(Runtime.getRuntime().availableProcessors(), wikiEntries.length); i++) {
+				Thread worker = new Thread(new Runnable() {
+					public void run() {
+						int k;
+						while((k = next.getAndIncrement()) < wikiEntries.length) {
+							try {
+								fileEntries[k] = scanFile(wikiEntries[k]);
+							} catch (IOException e) {
+								System.out.println("Could not open file  "+wikiEntries[k].getName());
+								e.printStackTrace();
+							}
+							int done = filesProcessed.incrementAndGet();
+							System.out.print("*");
+							if(done % 10 == 0 || done == wikiEntries.length) {
+								System.out.println("\nWiki processing "+done+"/"+wikiEntries.length+" done.");
+							}
+						}
+					}
+				}, "wiki-index-" + i);
+				worker.start();
+				workers.add(worker);
+			}
+			for(Thread worker : workers) {
+				try {
+					worker.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while indexing " + wikiDirName);
+				}
+			}
+			for(int k = 0; k < wikiEntries.length; k++) {
+				if(fileEntries[k] == null) {
+					continue;
+				}
+				String fileName = wikiEntries[k].getName();
+				for(int i = 0; i < fileEntries[k].ids.size(); i++) {
+					indexEntry(fileEntries[k].ids.get(i), fileName, fileEntries[k].offsets[i], locations, disambiguations);
+				}
+				fileEntries[k] = null;
+			}
+		}
+		write(indexFileName, getDumpSize(wikiDirName), locations, disambiguations);
+	}
+
+	// ids and line offsets of one dump file, in file order
+	private static class FileEntries {
+		private final List<String> ids = new ArrayList<String>();
+		private long[] offsets = new long[1024];
+
+		void add(String id, long offset) {
+			if(ids.size() == offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[ids.size()] = offset;
+			ids.add(id);
+		}
+	}
+
+	private static FileEntries scanFile(File wikiEntryList) throws IOException {
+		FileEntries entries = new FileEntries();
+		RandomAccessFile file = new RandomAccessFile(wikiEntryList, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+			long lineOffset = 0;
+			while(lineOffset < size) {
+				long windowSize = Math.min(SCAN_WINDOW, size - lineOffset);
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, lineOffset, windowSize);
+				int lineStart = 0;
+				int limit = window.limit();
+				for(int i = 0; i < limit; i++) {
+					if(window.get(i) == '\n') {
+						addEntry(window, lineStart, i, lineOffset + lineStart, entries);
+						lineStart = i + 1;
+					}
+				}
+				if(lineOffset + windowSize == size) {
+					if(lineStart < limit) {
+						addEntry(window, lineStart, limit, lineOffset + lineStart, entries);
+					}
+					break;
+				}
+				if(lineStart == 0) {
+					throw new IOException("Line at " + lineOffset + " in " + wikiEntryList.getName() + " is longer than " + SCAN_WINDOW + " bytes");
+				}
+				// carry the unfinished line over to the next window
+				lineOffset += lineStart;
+			}
+		} finally {
+			file.close();
+		}
+		return entries;
+	}
+
+	private static void addEntry(ByteBuffer window, int start, int end, long offset, FileEntries entries) {
+		String id = readLeadingId(window, start, end);
+		if(id == null) {
+			// not the usual {"id": ...} layout, so parse the whole line
+			byte[] line = new byte[end - start];
+			for(int i = 0; i < line.length; i++) {
+				line[i] = window.get(start + i);
+			}
+			try {
+				id = new JSONObject(new String(line, StandardCharsets.UTF_8)).getString("id");
+			} catch (JSONException e) {
+				e.printStackTrace();
+				return;
+			}
+		}
+		entries.add(Normalizer.normalize(id, Normalizer.Form.NFC), offset);
+	}
+
+	// decodes the value of a leading "id" key straight from the bytes, or returns null
+	private static String readLeadingId(ByteBuffer window, int start, int end) {
+		int pos = skipWhitespace(window, start, end);
+		if(pos >= end || window.get(pos) != '{') {
+			return null;
+		}
+		pos = skipWhitespace(window, pos + 1, end);
+		if(pos + 4 > end || window.get(pos) != '"' || window.get(pos + 1) != 'i' || window.get(pos + 2) != 'd' || window.get(pos + 3) != '"') {
+			return null;
+		}
+		pos = skipWhitespace(window, pos + 4, end);
+		if(pos >= end || window.get(pos) != ':') {
+			return null;
+		}
+		pos = skipWhitespace(window, pos + 1, end);
+		if(pos >= end || window.get(pos) != '"') {
+			return null;
+		}
+		pos++;
+		ByteArrayOutputStream run = new ByteArrayOutputStream(64);
+		StringBuilder id = new StringBuilder();
+		while(pos < end) {
+			byte b = window.get(pos);
+			if(b == '"') {
+				id.append(new String(run.toByteArray(), StandardCharsets.UTF_8));
+				return id.toString();
+			}
+			if(b != '\\') {
+				run.write(b);
+				pos++;
+				continue;
+			}
+			if(pos + 1 >= end) {
+				return null;
+			}
+			id.append(new String(run.toByteArray(), StandardCharsets.UTF_8));
+			run.reset();
+			byte escaped = window.get(pos + 1);
+			pos += 2;
+			switch(escaped) {
+			case '"':
+			case '\\':
+			case '/':
+				id.append((char) escaped);
+				break;
+			case 'b':
+				id.append('\b');
+				break;
+			case 'f':
+				id.append('\f');
+				break;
+			case 'n':
+				id.append('\n');
+				break;
+			case 'r':
+				id.append('\r');
+				break;
+			case 't':
+				id.append('\t');
+				break;
+			case 'u':
+				if(pos + 4 > end) {
+					return null;
+				}
+				int codeUnit = 0;
+				for(int i = 0; i < 4; i++) {
+					int digit = Character.digit(window.get(pos + i), 16);
+					if(digit < 0) {
+						return null;
+					}
+					codeUnit = codeUnit * 16 + digit;
+				}
+				id.append((char) codeUnit);
+				pos += 4;
+				break;
+			default:
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private static int skipWhitespace(ByteBuffer window, int pos, int end) {
+		while(pos < end && (window.get(pos) == ' ' || window.get(pos) == '\t' || window.get(pos) == '\r' || window.get(pos) == '\n')) {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static void indexEntry(String id, String fileName, long offset, WikiLocationIndex.Builder locations,
+			Map<String, ArrayList<String>> disambiguations) {
+		if(!id.isEmpty()) {
+			locations.put(id, fileName, offset);
+
+			int paren = id.indexOf("-LRB-");
+			if(paren > 0 && !id.contains("disambiguation")) {
+				String base = id.substring(0, paren-1);
+				ArrayList<String> disambiguationChildren = disambiguations.get(base);
+				if(disambiguationChildren == null) {
+					disambiguationChildren = new ArrayList<String>();
+					disambiguations.put(base, disambiguationChildren);
+				}
+				disambiguationChildren.add(id);
+			}
+		}
+	}
+
+	private static void write(String indexFileName, long dumpSize, final WikiLocationIndex.Builder locations,
+			Map<String, ArrayList<String>> disambiguations) throws IOException {
+		int size = locations.size();
+		final byte[][] titleBytes = new byte[size][];
+		Integer[] titleOrder = new Integer[size];
+		for(int i = 0; i < size; i++) {
+			titleBytes[i] = locations.getTitleBytes(i);
+			titleOrder[i] = i;
+		}
+		Arrays.sort(titleOrder, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return compareBytes(titleBytes[a], titleBytes[b]);
+			}
+		});
+		int[] sortedPosition = new int[size];
+		for(int i = 0; i < size; i++) {
+			sortedPosition[titleOrder[i]] = i;
+		}
+		String[] bases = disambiguations.keySet().toArray(new String[0]);
+		Arrays.sort(bases);
+
+		// dictionary refs are sorted title positions, or -(base + 1); titles sort before bases on equal keys
+		int dictSize = size + bases.length;
+		final byte[][] dictKeys = new byte[dictSize][];
+		Integer[] dictRefs = new Integer[dictSize];
+		for(int i = 0; i < size; i++) {
+			dictKeys[i] = TitleDictionary.fold(locations.getTitle(titleOrder[i]));
+			dictRefs[i] = i;
+		}
+		for(int i = 0; i < bases.length; i++) {
+			dictKeys[size + i] = TitleDictionary.fold(bases[i]);
+			dictRefs[size + i] = -(i + 1);
+		}
+		final int titleCount = size;
+		Arrays.sort(dictRefs, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				int cmp = compareBytes(dictKeys[toDictIndex(a, titleCount)], dictKeys[toDictIndex(b, titleCount)]);
+				if(cmp != 0) {
+					return cmp;
+				}
+				if((a >= 0) != (b >= 0)) {
+					return a >= 0 ? -1 : 1;
+				}
+				return a >= 0 ? a - b : b - a;
+			}
+		});
+		int dictKeyBytesLength = 0;
+		for(byte[] key : dictKeys) {
+			dictKeyBytesLength += key.length;
+		}
+
+		int titleBytesLength = 0;
+		for(int i = 0; i < size; i++) {
+			titleBytesLength += titleBytes[i].length;
+		}
+		int childCount = 0;
+		for(ArrayList<String> children : disambiguations.values()) {
+			childCount += children.size();
+		}
+		String[] fileNames = locations.getFileNames();
+
+		File tempFile = new File(indexFileName + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 20));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(dumpSize);
+			out.writeInt(fileNames.length);
+			for(String fileName : fileNames) {
+				byte[] nameBytes = fileName.getBytes(StandardCharsets.UTF_8);
+				out.writeShort(nameBytes.length);
+				out.write(nameBytes);
+			}
+			out.writeInt(size);
+			out.writeInt(bases.length);
+			out.writeInt(childCount);
+			out.writeInt(titleBytesLength);
+			out.writeInt(dictKeyBytesLength);
+
+			int start = 0;
+			for(Integer entry : titleOrder) {
+				out.writeInt(start);
+				start += titleBytes[entry].length;
+			}
+			out.writeInt(start);
+			for(Integer entry : titleOrder) {
+				out.writeShort(locations.getFileId(entry));
+			}
+			for(Integer entry : titleOrder) {
+				out.writeLong(locations.getOffset(entry));
+			}
+
+			byte[][] baseBytes = new byte[bases.length][];
+			start = 0;
+			for(int i = 0; i < bases.length; i++) {
+				baseBytes[i] = bases[i].getBytes(StandardCharsets.UTF_8);
+				out.writeInt(start);
+				start += baseBytes[i].length;
+			}
+			out.writeInt(start);
+			start = 0;
+			for(String base : bases) {
+				out.writeInt(start);
+				start += disambiguations.get(base).size();
+			}
+			out.writeInt(start);
+			for(String base : bases) {
+				for(String child : disambiguations.get(base)) {
+					out.writeInt(sortedPosition[locations.get(child)]);
+				}
+			}
+			start = 0;
+			for(Integer ref : dictRefs) {
+				out.writeInt(start);
+				start += dictKeys[toDictIndex(ref, size)].length;
+			}
+			out.writeInt(start);
+			for(Integer ref : dictRefs) {
+				out.writeInt(ref);
+			}
+
+			for(Integer entry : titleOrder) {
+				out.write(titleBytes[entry]);
+			}
+			for(byte[] bytes : baseBytes) {
+				out.write(bytes);
+			}
+			for(Integer ref : dictRefs) {
+				out.write(dictKeys[toDictIndex(ref, size)]);
+			}
+		} finally {
+			out.close();
+		}
+		File indexFile = new File(indexFileName);
+		if(indexFile.exists()) {
+			indexFile.delete();
+		}
+		if(!tempFile.renameTo(indexFile)) {
+			throw new IOException("Could not move " + tempFile.getName() + " to " + indexFileName);
+		}
+	}
+
+}
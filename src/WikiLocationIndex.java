@@ -0,0 +1,243 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * title -> (file, offset) lookups read straight from the wiki index mapping. The title table is
+ * sorted by UTF-8 bytes, so a lookup binary searches it in place; nothing is copied to the heap
+ * and every process mapping the same index shares its pages through the page cache.
+ */
+public class WikiLocationIndex {
+
+	private final String[] fileNames;
+	private final ByteBuffer buffer;
+	private final int size;
+	private final int titleStartsPos;
+	private final int fileIdsPos;
+	private final int offsetsPos;
+	private final int titleBytesPos;
+
+	public WikiLocationIndex(String[] fileNames, ByteBuffer buffer, int size, int titleStartsPos, int fileIdsPos, int offsetsPos, int titleBytesPos) {
+		this.fileNames = fileNames;
+		this.buffer = buffer;
+		this.size = size;
+		this.titleStartsPos = titleStartsPos;
+		this.fileIdsPos = fileIdsPos;
+		this.offsetsPos = offsetsPos;
+		this.titleBytesPos = titleBytesPos;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean containsKey(String title) {
+		return get(title) >= 0;
+	}
+
+	public int get(String title) {
+		byte[] key = title.getBytes(StandardCharsets.UTF_8);
+		int low = 0;
+		int high = size - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compareTitle(mid, key);
+			if(cmp < 0) {
+				low = mid + 1;
+			} else if(cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	public String getTitle(int entry) {
+		int start = titleStart(entry);
+		byte[] bytes = new byte[titleStart(entry + 1) - start];
+		for(int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(titleBytesPos + start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public String getFileName(int entry) {
+		return fileNames[getFileId(entry)];
+	}
+
+	public int getFileId(int entry) {
+		return buffer.getShort(fileIdsPos + 2 * entry);
+	}
+
+	public long getOffset(int entry) {
+		return buffer.getLong(offsetsPos + 8 * entry);
+	}
+
+	public String[] getFileNames() {
+		return fileNames;
+	}
+
+	private int titleStart(int entry) {
+		return buffer.getInt(titleStartsPos + 4 * entry);
+	}
+
+	// compares the entry's title with key byte by byte, unsigned, the order the table was written in
+	private int compareTitle(int entry, byte[] key) {
+		int start = titleBytesPos + titleStart(entry);
+		int length = titleStart(entry + 1) - titleStart(entry);
+		int common = Math.min(length, key.length);
+		for(int i = 0; i < common; i++) {
+			int cmp = (buffer.get(start + i) & 0xFF) - (key[i] & 0xFF);
+			if(cmp != 0) {
+				return cmp;
+			}
+		}
+		return length - key.length;
+	}
+
+	private static int tableSize(int entries) {
+		int tableSize = 16;
+		while(tableSize < entries * 2) {
+			tableSize <<= 1;
+		}
+		return tableSize;
+	}
+
+	private static int hash(byte[] bytes, int start, int end) {
+		int h = 0;
+		for(int i = start; i < end; i++) {
+			h = 31 * h + bytes[i];
+		}
+		h ^= h >>> 16;
+		h *= 0x45d9f3b;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	// returns the slot holding the key, or the empty slot where it would go
+	private static int findSlot(int[] slots, byte[] titleBytes, int[] titleStarts, byte[] key, int keyStart, int keyEnd) {
+		int mask = slots.length - 1;
+		int slot = hash(key, keyStart, keyEnd) & mask;
+		int keyLength = keyEnd - keyStart;
+		while(slots[slot] != 0) {
+			int entry = slots[slot] - 1;
+			int start = titleStarts[entry];
+			if(titleStarts[entry + 1] - start == keyLength && rangeEquals(titleBytes, start, key, keyStart, keyLength)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static boolean rangeEquals(byte[] a, int aStart, byte[] b, int bStart, int length) {
+		for(int i = 0; i < length; i++) {
+			if(a[aStart + i] != b[bStart + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Growable in-memory form used while scanning the wiki-dump, in first-seen order; WikiIndex
+	 * writes it out sorted. put() keeps HashMap semantics: a title seen again overwrites the
+	 * earlier location.
+	 */
+	public static class Builder {
+		private final List<String> fileNames = new ArrayList<String>();
+		private final Map<String, Short> fileIdMap = new HashMap<String, Short>();
+		private byte[] titleBytes = new byte[1 << 16];
+		private int[] titleStarts = new int[1024 + 1];
+		private short[] fileIds = new short[1024];
+		private long[] offsets = new long[1024];
+		private int[] slots = new int[tableSize(1024)];
+		private int size = 0;
+
+		public int put(String title, String fileName, long offset) {
+			byte[] key = title.getBytes(StandardCharsets.UTF_8);
+			int slot = findSlot(slots, titleBytes, titleStarts, key, 0, key.length);
+			int entry = slots[slot] - 1;
+			if(entry < 0) {
+				entry = append(key);
+				if(size * 2 > slots.length) {
+					rehash();
+				} else {
+					slots[slot] = entry + 1;
+				}
+			}
+			fileIds[entry] = internFile(fileName);
+			offsets[entry] = offset;
+			return entry;
+		}
+
+		public int get(String title) {
+			byte[] key = title.getBytes(StandardCharsets.UTF_8);
+			return slots[findSlot(slots, titleBytes, titleStarts, key, 0, key.length)] - 1;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public String getTitle(int entry) {
+			return new String(titleBytes, titleStarts[entry], titleStarts[entry + 1] - titleStarts[entry], StandardCharsets.UTF_8);
+		}
+
+		public byte[] getTitleBytes(int entry) {
+			return Arrays.copyOfRange(titleBytes, titleStarts[entry], titleStarts[entry + 1]);
+		}
+
+		public int getFileId(int entry) {
+			return fileIds[entry];
+		}
+
+		public long getOffset(int entry) {
+			return offsets[entry];
+		}
+
+		public String[] getFileNames() {
+			return fileNames.toArray(new String[0]);
+		}
+
+		private int append(byte[] key) {
+			if(size + 1 == fileIds.length) {
+				int capacity = fileIds.length * 2;
+				titleStarts = Arrays.copyOf(titleStarts, capacity + 1);
+				fileIds = Arrays.copyOf(fileIds, capacity);
+				offsets = Arrays.copyOf(offsets, capacity);
+			}
+			int start = titleStarts[size];
+			if(start + key.length > titleBytes.length) {
+				titleBytes = Arrays.copyOf(titleBytes, Math.max(titleBytes.length * 2, start + key.length));
+			}
+			System.arraycopy(key, 0, titleBytes, start, key.length);
+			titleStarts[size + 1] = start + key.length;
+			return size++;
+		}
+
+		private void rehash() {
+			slots = new int[slots.length * 2];
+			for(int entry = 0; entry < size; entry++) {
+				int slot = findSlot(slots, titleBytes, titleStarts, titleBytes, titleStarts[entry], titleStarts[entry + 1]);
+				slots[slot] = entry + 1;
+			}
+		}
+
+		private short internFile(String fileName) {
+			Short fileId = fileIdMap.get(fileName);
+			if(fileId == null) {
+				fileId = (short) fileNames.size();
+				fileNames.add(fileName);
+				fileIdMap.put(fileName, fileId);
+			}
+			return fileId;
+		}
+	}
+
+}